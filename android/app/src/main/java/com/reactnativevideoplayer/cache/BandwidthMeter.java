@@ -0,0 +1,56 @@
+package com.reactnativevideoplayer.cache;
+
+/**
+ * Estimates the download bandwidth from the throughput of finished downloads, as an
+ * exponentially weighted average so the estimate follows changes of the network within a few
+ * downloads.
+ * <p>
+ * Thread safe.
+ */
+
+public final class BandwidthMeter {
+
+    /**
+     * Estimate used before any download was measured, in bits per second.
+     */
+    public static final long DEFAULT_ESTIMATE = 1000000L;
+
+    /**
+     * Downloads smaller than this are dominated by latency and not measured.
+     */
+    private static final long MIN_SAMPLE_BYTES = 32 * 1024;
+
+    /**
+     * Weight of the newest download in the estimate.
+     */
+    private static final double SAMPLE_WEIGHT = 0.3;
+
+    private double mEstimate = -1;
+
+    /**
+     * Measure a finished download.
+     *
+     * @param bytes        bytes downloaded
+     * @param elapsedNanos time spent downloading them
+     */
+    public synchronized void addSample(long bytes, long elapsedNanos) {
+        if (bytes < MIN_SAMPLE_BYTES || elapsedNanos <= 0) {
+            return;
+        }
+        final double bitsPerSecond = bytes * 8 * 1e9 / elapsedNanos;
+        mEstimate = mEstimate < 0 ? bitsPerSecond :
+                SAMPLE_WEIGHT * bitsPerSecond + (1 - SAMPLE_WEIGHT) * mEstimate;
+    }
+
+    /**
+     * @return estimated bandwidth in bits per second, {@link #DEFAULT_ESTIMATE} if nothing was
+     * measured yet
+     */
+    public synchronized long getEstimate() {
+        return mEstimate < 0 ? DEFAULT_ESTIMATE : (long) mEstimate;
+    }
+
+    public synchronized void reset() {
+        mEstimate = -1;
+    }
+}
@@ -0,0 +1,238 @@
+package com.reactnativevideoplayer.cache;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A video saved for offline playback. The file is split into chunks which are fetched in any
+ * order, the chunks done are kept in a bitmap saved next to the file so an interrupted download
+ * resumes with the chunks still missing.
+ * <p>
+ * Thread safe, the chunks are claimed by the fetching threads one at a time.
+ */
+
+public final class Download {
+
+    public static final int STATE_QUEUED = 0;
+    public static final int STATE_RUNNING = 1;
+    public static final int STATE_PAUSED = 2;
+    public static final int STATE_COMPLETED = 3;
+    public static final int STATE_FAILED = 4;
+    public static final int STATE_REMOVED = 5;
+
+    private static final int VERSION = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final String mUri;
+    private final File mFile;
+    private final File mStateFile;
+
+    private long mLength = -1;
+    private int mChunkSize;
+    private int mChunkCount;
+    private byte[] mDoneChunks = new byte[0];
+    private boolean[] mClaimedChunks = new boolean[0];
+    private int mDoneCount;
+    private long mDownloadedBytes;
+    private int mState = STATE_PAUSED;
+    private String mError;
+    private boolean mIsRemoved;
+
+    Download(String uri, File file, File stateFile) {
+        this.mUri = uri;
+        this.mFile = file;
+        this.mStateFile = stateFile;
+    }
+
+    /**
+     * Read a download saved by {@link #save}.
+     *
+     * @return the download, paused unless it is complete
+     */
+    static Download load(File file, File stateFile) throws IOException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+            if (in.readInt() != VERSION) {
+                throw new IOException("unknown version of " + stateFile);
+            }
+            final Download download = new Download(in.readUTF(), file, stateFile);
+            final long length = in.readLong();
+            final int chunkSize = in.readInt();
+            if (length >= 0) {
+                download.setLength(length, chunkSize);
+                in.readFully(download.mDoneChunks);
+                for (int i = 0; i < download.mChunkCount; i++) {
+                    if (download.isDone(i)) {
+                        download.mDoneCount++;
+                        download.mDownloadedBytes += download.getChunkLength(i);
+                    }
+                }
+            }
+            download.mState = download.isComplete() ? STATE_COMPLETED : STATE_PAUSED;
+            return download;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Write the length and the chunks done, a removed download is not written.
+     */
+    synchronized void save() throws IOException {
+        if (mIsRemoved) {
+            return;
+        }
+        final File temp = new File(mStateFile.getPath() + TEMP_SUFFIX);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new FileOutputStream(temp));
+            out.writeInt(VERSION);
+            out.writeUTF(mUri);
+            out.writeLong(mLength);
+            out.writeInt(mChunkSize);
+            out.write(mDoneChunks);
+            out.close();
+            out = null;
+            if (!temp.renameTo(mStateFile)) {
+                throw new IOException("rename " + temp + " failed");
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Split the file into chunks once its length is known, the chunks done so far are dropped
+     * if the length changed.
+     */
+    synchronized void setLength(long length, int chunkSize) {
+        if (length == mLength && chunkSize == mChunkSize) {
+            return;
+        }
+        mLength = length;
+        mChunkSize = chunkSize;
+        mChunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+        mDoneChunks = new byte[(mChunkCount + 7) / 8];
+        mClaimedChunks = new boolean[mChunkCount];
+        mDoneCount = 0;
+        mDownloadedBytes = 0;
+    }
+
+    synchronized boolean hasLength() {
+        return mLength >= 0;
+    }
+
+    /**
+     * Take a missing chunk no other thread is fetching.
+     *
+     * @return index of the chunk, or -1 if there is none
+     */
+    synchronized int claimChunk() {
+        for (int i = 0; i < mChunkCount; i++) {
+            if (!mClaimedChunks[i] && !isDone(i)) {
+                mClaimedChunks[i] = true;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    synchronized void unclaimChunk(int index) {
+        mClaimedChunks[index] = false;
+    }
+
+    synchronized void markChunkDone(int index) {
+        mClaimedChunks[index] = false;
+        if (!isDone(index)) {
+            mDoneChunks[index >> 3] |= 1 << (index & 7);
+            mDoneCount++;
+            mDownloadedBytes += getChunkLength(index);
+        }
+    }
+
+    synchronized int getMissingChunkCount() {
+        return mChunkCount - mDoneCount;
+    }
+
+    private boolean isDone(int index) {
+        return (mDoneChunks[index >> 3] & (1 << (index & 7))) != 0;
+    }
+
+    synchronized long getChunkStart(int index) {
+        return (long) index * mChunkSize;
+    }
+
+    synchronized int getChunkLength(int index) {
+        return (int) Math.min(mChunkSize, mLength - (long) index * mChunkSize);
+    }
+
+    synchronized void setState(int state, String error) {
+        mState = state;
+        mError = error;
+    }
+
+    /**
+     * Stop writing the state, the files are about to be deleted.
+     */
+    synchronized void markRemoved() {
+        mIsRemoved = true;
+        mState = STATE_REMOVED;
+    }
+
+    public String getUri() {
+        return mUri;
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    File getStateFile() {
+        return mStateFile;
+    }
+
+    /**
+     * @return length of the video in bytes, or -1 if it is not known yet
+     */
+    public synchronized long getLength() {
+        return mLength;
+    }
+
+    public synchronized long getDownloadedBytes() {
+        return mDownloadedBytes;
+    }
+
+    public synchronized int getState() {
+        return mState;
+    }
+
+    /**
+     * @return message of the failure of a failed download, or null
+     */
+    public synchronized String getError() {
+        return mError;
+    }
+
+    public synchronized boolean isComplete() {
+        return mLength >= 0 && mDoneCount == mChunkCount;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
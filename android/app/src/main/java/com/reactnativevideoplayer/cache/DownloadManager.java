@@ -0,0 +1,500 @@
+package com.reactnativevideoplayer.cache;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Saves videos for offline playback. The file of a video is preallocated and its chunks are
+ * fetched with parallel range requests straight into it, a download paused or interrupted by
+ * the process dying resumes with the chunks still missing.
+ * <p>
+ * Servers which do not support range requests are fetched in one piece. Listeners are called
+ * on the main thread.
+ * <p>
+ * The saved downloads are read on a background thread when the manager is created, calls made
+ * before they are read wait for them except {@link #getLocalPath}, so the manager must not be
+ * used on the main thread but for that method.
+ */
+
+public final class DownloadManager {
+
+    private static final String TAG = "DownloadManager";
+
+    private static final String DOWNLOAD_DIR = "video-downloads";
+    private static final String STATE_SUFFIX = ".state";
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int DEFAULT_PARALLELISM = 3;
+
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 15000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Times a chunk is tried again before the download fails.
+     */
+    private static final int CHUNK_RETRIES = 2;
+
+    private static DownloadManager sInstance;
+
+    public interface Listener {
+
+        /**
+         * Called each time a chunk of the download is saved.
+         */
+        void onProgress(Download download);
+
+        void onStateChanged(Download download);
+    }
+
+    private final File mDirectory;
+    private final int mChunkSize;
+    private final int mParallelism;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Uri to download.
+     */
+    private final HashMap<String, Download> mDownloads = new HashMap<>();
+    private boolean mIsLoaded;
+
+    public DownloadManager(File directory, int chunkSize, int parallelism) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize <= 0");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism <= 0");
+        }
+        this.mDirectory = directory;
+        this.mChunkSize = chunkSize;
+        this.mParallelism = parallelism;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                loadDownloads();
+            }
+        });
+    }
+
+    /**
+     * The manager shared in the process, saving into the files directory of the app.
+     */
+    public static synchronized DownloadManager getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new DownloadManager(new File(
+                    context.getApplicationContext().getFilesDir(), DOWNLOAD_DIR),
+                    DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Read the saved downloads, the files are read without holding the lock.
+     */
+    private void loadDownloads() {
+        final ArrayList<Download> downloads = new ArrayList<>();
+        File[] files = null;
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(TAG, "can not create download directory " + mDirectory);
+        } else {
+            files = mDirectory.listFiles();
+        }
+        for (File stateFile : files == null ? new File[0] : files) {
+            final String name = stateFile.getName();
+            if (!name.endsWith(STATE_SUFFIX)) {
+                continue;
+            }
+            final File file = new File(mDirectory,
+                    name.substring(0, name.length() - STATE_SUFFIX.length()));
+            try {
+                downloads.add(Download.load(file, stateFile));
+            } catch (IOException e) {
+                Log.w(TAG, "read " + stateFile + " failed", e);
+                stateFile.delete();
+                file.delete();
+            }
+        }
+        synchronized (this) {
+            for (Download download : downloads) {
+                mDownloads.put(download.getUri(), download);
+            }
+            mIsLoaded = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Wait until the saved downloads are read, called with the lock held.
+     */
+    private void ensureLoaded() {
+        boolean isInterrupted = false;
+        while (!mIsLoaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Start saving a video, or resume it if it was paused or failed.
+     *
+     * @param uri remote video uri
+     * @return the download of the video
+     */
+    public synchronized Download start(String uri) {
+        ensureLoaded();
+        Download download = mDownloads.get(uri);
+        if (download == null) {
+            final String key = SegmentCache.keyOf(uri);
+            download = new Download(uri, new File(mDirectory, key),
+                    new File(mDirectory, key + STATE_SUFFIX));
+            mDownloads.put(uri, download);
+        }
+        final int state = download.getState();
+        if (state == Download.STATE_PAUSED || state == Download.STATE_FAILED) {
+            download.setState(Download.STATE_QUEUED, null);
+            notifyStateChanged(download);
+            final Download target = download;
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runDownload(target);
+                }
+            });
+        }
+        return download;
+    }
+
+    /**
+     * Stop fetching a video, the chunks saved so far are kept. Chunks being fetched are dropped.
+     */
+    public synchronized void pause(String uri) {
+        ensureLoaded();
+        final Download download = mDownloads.get(uri);
+        if (download == null) {
+            return;
+        }
+        final int state = download.getState();
+        if (state == Download.STATE_QUEUED || state == Download.STATE_RUNNING) {
+            download.setState(Download.STATE_PAUSED, null);
+            notifyStateChanged(download);
+        }
+    }
+
+    /**
+     * Stop fetching a video and delete what was saved of it.
+     */
+    public synchronized void remove(String uri) {
+        ensureLoaded();
+        final Download download = mDownloads.remove(uri);
+        if (download == null) {
+            return;
+        }
+        download.markRemoved();
+        download.getFile().delete();
+        download.getStateFile().delete();
+        notifyStateChanged(download);
+    }
+
+    public synchronized Download getDownload(String uri) {
+        ensureLoaded();
+        return mDownloads.get(uri);
+    }
+
+    public synchronized List<Download> getDownloads() {
+        ensureLoaded();
+        return new ArrayList<>(mDownloads.values());
+    }
+
+    /**
+     * Safe to call on the main thread, it does not wait for the saved downloads.
+     *
+     * @param uri remote video uri
+     * @return path of the saved video if it is complete, or null, also until the saved
+     * downloads are read
+     */
+    public synchronized String getLocalPath(String uri) {
+        final Download download = mDownloads.get(uri);
+        return download != null && download.isComplete() ?
+                download.getFile().getAbsolutePath() : null;
+    }
+
+    private void runDownload(final Download download) {
+        if (!isRunnable(download)) {
+            return;
+        }
+        download.setState(Download.STATE_RUNNING, null);
+        notifyStateChanged(download);
+        RandomAccessFile file = null;
+        String error = null;
+        try {
+            if (!download.hasLength()) {
+                probe(download);
+            }
+            file = new RandomAccessFile(download.getFile(), "rw");
+            if (file.length() != download.getLength()) {
+                file.setLength(download.getLength());
+            }
+            final FileChannel channel = file.getChannel();
+            final int workerCount = Math.min(mParallelism, download.getMissingChunkCount());
+            final ArrayList<Future<?>> workers = new ArrayList<>(workerCount);
+            for (int i = 1; i < workerCount; i++) {
+                workers.add(mExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            fetchChunks(download, channel);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }));
+            }
+            IOException failure = null;
+            try {
+                fetchChunks(download, channel);
+            } catch (IOException e) {
+                failure = e;
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = new IOException(e.getCause());
+                    }
+                }
+            }
+            channel.force(false);
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "download " + download.getUri() + " failed", e);
+            error = e.getMessage() == null ? e.toString() : e.getMessage();
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        saveState(download);
+        synchronized (this) {
+            final Download current = mDownloads.get(download.getUri());
+            if (current != download) {
+                if (current == null) {
+                    // removed while the file was being opened
+                    download.getFile().delete();
+                }
+                return;
+            }
+            if (download.isComplete()) {
+                download.setState(Download.STATE_COMPLETED, null);
+            } else if (error != null && isRunnable(download)) {
+                download.setState(Download.STATE_FAILED, error);
+            } else {
+                // paused, or the missing chunks are still fetched by a resumed run
+                return;
+            }
+        }
+        notifyStateChanged(download);
+    }
+
+    /**
+     * @return true if the download is neither paused nor removed
+     */
+    private synchronized boolean isRunnable(Download download) {
+        final int state = download.getState();
+        return mDownloads.get(download.getUri()) == download &&
+                (state == Download.STATE_QUEUED || state == Download.STATE_RUNNING);
+    }
+
+    /**
+     * Find the length of the video and whether the server serves ranges, with a request of its
+     * first byte.
+     */
+    private void probe(Download download) throws IOException {
+        final HttpURLConnection connection = openConnection(download.getUri());
+        connection.setRequestProperty("Range", "bytes=0-0");
+        try {
+            final int code = connection.getResponseCode();
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                final String range = connection.getHeaderField("Content-Range");
+                final int slash = range == null ? -1 : range.lastIndexOf('/');
+                final long length = slash < 0 ? -1 : parseLength(range.substring(slash + 1));
+                if (length <= 0) {
+                    throw new IOException("unknown length of " + download.getUri());
+                }
+                download.setLength(length, mChunkSize);
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                final long length = parseLength(connection.getHeaderField("Content-Length"));
+                if (length <= 0 || length > Integer.MAX_VALUE) {
+                    throw new IOException("unknown length of " + download.getUri());
+                }
+                download.setLength(length, (int) length);
+            } else {
+                throw new IOException("unexpected response " + code + " for " +
+                        download.getUri());
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static long parseLength(String length) {
+        try {
+            return length == null ? -1 : Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void fetchChunks(Download download, FileChannel channel) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int index;
+        while (isRunnable(download) && (index = download.claimChunk()) >= 0) {
+            boolean isDone = false;
+            try {
+                for (int attempt = 0; ; attempt++) {
+                    try {
+                        isDone = fetchChunk(download, index, channel, buffer);
+                        break;
+                    } catch (IOException e) {
+                        if (attempt == CHUNK_RETRIES) {
+                            throw e;
+                        }
+                    }
+                }
+            } finally {
+                if (isDone) {
+                    download.markChunkDone(index);
+                } else {
+                    download.unclaimChunk(index);
+                }
+            }
+            if (isDone) {
+                saveState(download);
+                notifyProgress(download);
+            }
+        }
+    }
+
+    /**
+     * @return true if the whole chunk was written, false if the download was paused
+     */
+    private boolean fetchChunk(Download download, int index, FileChannel channel, byte[] buffer)
+            throws IOException {
+        final long start = download.getChunkStart(index);
+        final int length = download.getChunkLength(index);
+        final HttpURLConnection connection = openConnection(download.getUri());
+        connection.setRequestProperty("Range", "bytes=" + start + "-" + (start + length - 1));
+        InputStream in = null;
+        try {
+            final int code = connection.getResponseCode();
+            if (code != HttpURLConnection.HTTP_PARTIAL &&
+                    (code != HttpURLConnection.HTTP_OK || start != 0)) {
+                throw new IOException("unexpected response " + code + " for " +
+                        download.getUri());
+            }
+            in = connection.getInputStream();
+            int written = 0;
+            while (written < length) {
+                if (!isRunnable(download)) {
+                    return false;
+                }
+                final int count = in.read(buffer, 0, Math.min(buffer.length, length - written));
+                if (count < 0) {
+                    throw new EOFException();
+                }
+                final ByteBuffer data = ByteBuffer.wrap(buffer, 0, count);
+                while (data.hasRemaining()) {
+                    channel.write(data, start + written + data.position());
+                }
+                written += count;
+            }
+            return true;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+            connection.disconnect();
+        }
+    }
+
+    private void saveState(Download download) {
+        try {
+            download.save();
+        } catch (IOException e) {
+            Log.w(TAG, "save state of " + download.getUri() + " failed", e);
+        }
+    }
+
+    private void notifyProgress(final Download download) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : mListeners) {
+                    listener.onProgress(download);
+                }
+            }
+        });
+    }
+
+    private void notifyStateChanged(final Download download) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : mListeners) {
+                    listener.onStateChanged(download);
+                }
+            }
+        });
+    }
+
+    private static HttpURLConnection openConnection(String uri) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(uri).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        return connection;
+    }
+}
@@ -0,0 +1,308 @@
+package com.reactnativevideoplayer.cache;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers where each video was left, so it is opened there again in a later session. The
+ * positions are kept in a single file of 64-bit uri hashes and positions, the least recently
+ * saved ones are dropped beyond {@link #DEFAULT_MAX_ENTRIES}.
+ * <p>
+ * The file is read on a background thread when the store is created and written there at most
+ * once per {@link #FLUSH_DELAY}, no method does file I/O on the calling thread. Until the file is
+ * read the store only knows the positions saved since, changes made meanwhile win over the file.
+ * Thread safe.
+ */
+
+public final class PositionStore {
+
+    private static final String TAG = "PositionStore";
+
+    private static final String FILE_NAME = "video_positions";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int VERSION = 1;
+
+    /**
+     * Default max count of remembered positions.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+
+    /**
+     * Delay between a change and the write of the file, changes in between are batched.
+     */
+    private static final int FLUSH_DELAY = 5000;
+
+    /**
+     * Videos shorter than this always start from the beginning.
+     */
+    private static final int MIN_DURATION = 60000;
+
+    /**
+     * Positions closer than this to either end of the video are not remembered.
+     */
+    private static final int END_MARGIN = 5000;
+
+    private static PositionStore sInstance;
+
+    /**
+     * Uri hash to position in access order, the least recently used ones are dropped beyond a
+     * max count.
+     */
+    private static final class PositionMap extends LinkedHashMap<Long, Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mMaxEntries;
+
+        PositionMap(int maxEntries) {
+            super(64, 0.75F, true);
+            this.mMaxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > mMaxEntries;
+        }
+    }
+
+    private final File mFile;
+    private final Handler mHandler;
+    private final PositionMap mPositions;
+
+    /**
+     * Keys removed before the file was read, so they are not read back.
+     */
+    private final HashSet<Long> mRemovedKeys = new HashSet<>();
+    private boolean mIsLoaded;
+    private boolean mIsFlushPending;
+
+    private final Runnable mFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushNow();
+        }
+    };
+
+    public PositionStore(File file, int maxEntries) {
+        this(file, maxEntries, null);
+    }
+
+    /**
+     * @param looper looper of the thread doing the file I/O, or null for a new background thread
+     */
+    PositionStore(File file, int maxEntries, Looper looper) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries <= 0");
+        }
+        this.mFile = file;
+        this.mPositions = new PositionMap(maxEntries);
+        if (looper == null) {
+            final HandlerThread thread = new HandlerThread("position-store",
+                    Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            looper = thread.getLooper();
+        }
+        mHandler = new Handler(looper);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * The store shared in the process, kept in the files directory of the app.
+     */
+    public static synchronized PositionStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PositionStore(new File(context.getApplicationContext().getFilesDir(),
+                    FILE_NAME), DEFAULT_MAX_ENTRIES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param uri video uri
+     * @return remembered position of the video, or -1 if unknown or the file is not read yet
+     */
+    public synchronized int get(String uri) {
+        final Integer position = mPositions.get(keyOf(uri));
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Remember the position of a video, positions near the start or the end of the video and
+     * positions of short videos are forgotten instead
+     *
+     * @param uri        video uri
+     * @param positionMs current position
+     * @param durationMs duration of the video
+     */
+    public synchronized void put(String uri, int positionMs, int durationMs) {
+        if (durationMs < MIN_DURATION || positionMs < END_MARGIN ||
+                positionMs > durationMs - END_MARGIN) {
+            remove(uri);
+            return;
+        }
+        final Long key = keyOf(uri);
+        mRemovedKeys.remove(key);
+        final Integer old = mPositions.put(key, positionMs);
+        if (old == null || old != positionMs) {
+            scheduleFlush();
+        }
+    }
+
+    public synchronized void remove(String uri) {
+        final Long key = keyOf(uri);
+        if (!mIsLoaded) {
+            // the file may still hold it
+            mRemovedKeys.add(key);
+            mPositions.remove(key);
+            scheduleFlush();
+        } else if (mPositions.remove(key) != null) {
+            scheduleFlush();
+        }
+    }
+
+
+    /**
+     * Write pending changes now, e.g. when the app goes to the background.
+     */
+    public synchronized void flush() {
+        if (mIsFlushPending) {
+            mHandler.removeCallbacks(mFlushTask);
+            mHandler.post(mFlushTask);
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!mIsFlushPending) {
+            mIsFlushPending = true;
+            mHandler.postDelayed(mFlushTask, FLUSH_DELAY);
+        }
+    }
+
+    /**
+     * Read the file on the store thread, then merge it under the positions changed meanwhile.
+     */
+    private void load() {
+        final ArrayList<Long> keys = new ArrayList<>();
+        final ArrayList<Integer> positions = new ArrayList<>();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (in.readInt() == VERSION) {
+                final int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    keys.add(in.readLong());
+                    positions.add(in.readInt());
+                }
+            }
+        } catch (FileNotFoundException ignored) {
+        } catch (IOException e) {
+            Log.w(TAG, "read positions failed", e);
+        } finally {
+            closeQuietly(in);
+        }
+        synchronized (this) {
+            final LinkedHashMap<Long, Integer> changed = new LinkedHashMap<>(mPositions);
+            mPositions.clear();
+            for (int i = 0; i < keys.size(); i++) {
+                if (!mRemovedKeys.contains(keys.get(i))) {
+                    mPositions.put(keys.get(i), positions.get(i));
+                }
+            }
+            mPositions.putAll(changed);
+            mRemovedKeys.clear();
+            mIsLoaded = true;
+        }
+    }
+
+    /**
+     * Write all positions, the least recently used first so they are read back in order. Always
+     * runs after {@link #load} as both run on the store thread in order.
+     */
+    private void flushNow() {
+        final long[] keys;
+        final int[] positions;
+        synchronized (this) {
+            mIsFlushPending = false;
+            keys = new long[mPositions.size()];
+            positions = new int[keys.length];
+            int i = 0;
+            for (Map.Entry<Long, Integer> entry : mPositions.entrySet()) {
+                keys[i] = entry.getKey();
+                positions[i] = entry.getValue();
+                i++;
+            }
+        }
+        final File temp = new File(mFile.getPath() + TEMP_SUFFIX);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(VERSION);
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                out.writeLong(keys[i]);
+                out.writeInt(positions[i]);
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(mFile)) {
+                throw new IOException("rename " + temp + " failed");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "write positions failed", e);
+            temp.delete();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * @return the first 64 bits of the MD5 of the uri
+     */
+    private static long keyOf(String uri) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(uri.getBytes("UTF-8"));
+            long key = 0;
+            for (int i = 0; i < 8; i++) {
+                key = (key << 8) | (digest[i] & 0xFF);
+            }
+            return key;
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return uri.hashCode();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
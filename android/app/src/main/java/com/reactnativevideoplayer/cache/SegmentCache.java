@@ -0,0 +1,337 @@
+package com.reactnativevideoplayer.cache;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size bounded disk cache of fixed-size video segments, the least recently used files are
+ * evicted first. Segment {@code i} of a video holds the bytes
+ * {@code [i * segmentSize, (i + 1) * segmentSize)}, only the last segment may be shorter.
+ * <p>
+ * The index of the cached files is read on a background thread when the cache is created,
+ * calls made before it is read wait for it, so the cache must not be used on the main thread.
+ */
+
+public final class SegmentCache {
+
+    private static final String TAG = "SegmentCache";
+
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mDirectory;
+    private final int mSegmentSize;
+    private final long mMaxBytes;
+
+    /**
+     * File name to file size, in access order.
+     */
+    private final LinkedHashMap<String, Long> mFiles = new LinkedHashMap<>(64, 0.75F, true);
+    private long mSize;
+    private boolean mIsLoaded;
+
+    /**
+     * Content information of a cached video.
+     */
+    public static final class Meta {
+        public final long length;
+        public final String contentType;
+
+        public Meta(long length, String contentType) {
+            this.length = length;
+            this.contentType = contentType;
+        }
+    }
+
+    public SegmentCache(File directory, int segmentSize, long maxBytes) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize <= 0");
+        }
+        this.mDirectory = directory;
+        this.mSegmentSize = segmentSize;
+        this.mMaxBytes = maxBytes;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loadIndex();
+            }
+        }, "segment-cache-index").start();
+    }
+
+    /**
+     * Read the cached files in the order they were used, the files are listed without holding
+     * the lock.
+     */
+    private void loadIndex() {
+        File[] files = null;
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(TAG, "can not create cache directory " + mDirectory);
+        } else {
+            files = mDirectory.listFiles();
+        }
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                final long l = lhs.lastModified();
+                final long r = rhs.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        final String[] names = new String[files.length];
+        final long[] lengths = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            final File file = files[i];
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            names[i] = file.getName();
+            lengths[i] = file.length();
+        }
+        synchronized (this) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] != null) {
+                    mFiles.put(names[i], lengths[i]);
+                    mSize += lengths[i];
+                }
+            }
+            mIsLoaded = true;
+            trimToSize(mMaxBytes);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Wait until the index is read, called with the lock held.
+     */
+    private void ensureLoaded() {
+        boolean isInterrupted = false;
+        while (!mIsLoaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getSegmentSize() {
+        return mSegmentSize;
+    }
+
+    /**
+     * @param uri video uri
+     * @return the key of all files cached for the uri
+     */
+    public static String keyOf(String uri) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(uri.getBytes("UTF-8"));
+            final char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = Character.forDigit((digest[i] >> 4) & 0xF, 16);
+                hex[i * 2 + 1] = Character.forDigit(digest[i] & 0xF, 16);
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(uri.hashCode());
+        }
+    }
+
+    public Meta getMeta(String key) {
+        final String name = key + META_SUFFIX;
+        if (!touch(name)) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(new File(mDirectory, name)));
+            final long length = in.readLong();
+            final String contentType = in.readUTF();
+            return new Meta(length, contentType);
+        } catch (IOException e) {
+            remove(name);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    public void putMeta(String key, Meta meta) {
+        File temp = null;
+        DataOutputStream out = null;
+        try {
+            temp = createTempFile(key + META_SUFFIX);
+            out = new DataOutputStream(new FileOutputStream(temp));
+            out.writeLong(meta.length);
+            out.writeUTF(meta.contentType == null ? "" : meta.contentType);
+            out.close();
+            out = null;
+            commit(temp, key + META_SUFFIX);
+        } catch (IOException e) {
+            Log.w(TAG, "write meta of " + key + " failed", e);
+            deleteQuietly(temp);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    public synchronized boolean hasSegment(String key, int index) {
+        ensureLoaded();
+        return mFiles.containsKey(segmentName(key, index));
+    }
+
+    /**
+     * Map a cached segment into memory.
+     *
+     * @return a read-only buffer over the whole segment, or null if the segment is not cached
+     */
+    public ByteBuffer getSegment(String key, int index) {
+        final String name = segmentName(key, index);
+        if (!touch(name)) {
+            return null;
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(new File(mDirectory, name), "r");
+            final FileChannel channel = file.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            remove(name);
+            return null;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    public void putSegment(String key, int index, byte[] data, int length) {
+        final String name = segmentName(key, index);
+        File temp = null;
+        FileOutputStream out = null;
+        try {
+            temp = createTempFile(name);
+            out = new FileOutputStream(temp);
+            final FileChannel channel = out.getChannel();
+            final ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            out.close();
+            out = null;
+            commit(temp, name);
+        } catch (IOException e) {
+            Log.w(TAG, "write segment " + name + " failed", e);
+            deleteQuietly(temp);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Delete all cached files.
+     */
+    public synchronized void clear() {
+        ensureLoaded();
+        trimToSize(0);
+    }
+
+    public synchronized long getSize() {
+        ensureLoaded();
+        return mSize;
+    }
+
+    private synchronized void commit(File temp, String name) throws IOException {
+        ensureLoaded();
+        final File file = new File(mDirectory, name);
+        if (!temp.renameTo(file)) {
+            throw new IOException("rename " + temp + " failed");
+        }
+        final Long old = mFiles.put(name, file.length());
+        if (old != null) {
+            mSize -= old;
+        }
+        mSize += file.length();
+        trimToSize(mMaxBytes);
+    }
+
+    private synchronized boolean touch(String name) {
+        ensureLoaded();
+        if (mFiles.get(name) == null) {
+            return false;
+        }
+        new File(mDirectory, name).setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    private synchronized void remove(String name) {
+        ensureLoaded();
+        final Long size = mFiles.remove(name);
+        if (size != null) {
+            mSize -= size;
+            new File(mDirectory, name).delete();
+        }
+    }
+
+    private synchronized void trimToSize(long maxBytes) {
+        final Iterator<Map.Entry<String, Long>> iterator = mFiles.entrySet().iterator();
+        while (mSize > maxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            mSize -= eldest.getValue();
+            new File(mDirectory, eldest.getKey()).delete();
+        }
+    }
+
+    /**
+     * A temp file of its own for each write, so writers of the same file, e.g. the player and
+     * the thumbnail extractor fetching the same segment, do not write into each other's file.
+     */
+    private File createTempFile(String name) throws IOException {
+        synchronized (this) {
+            // the directory is created by the index load
+            ensureLoaded();
+        }
+        return File.createTempFile(name + ".", TEMP_SUFFIX, mDirectory);
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    private static String segmentName(String key, int index) {
+        return key + "." + index;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.reactnativevideoplayer.cache;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Memory cache of seek preview thumbnails or posters bounded by bytes. Evicted thumbnails are
+ * kept for reuse, a new thumbnail of the same size is drawn into one of them instead of
+ * allocating. Posters are immutable and never reused.
+ * <p>
+ * Thread safe. A thumbnail being shown must be taken with {@link #acquire} and given back with
+ * {@link #release} once it is no longer shown, it is only reused when it is both evicted and
+ * released.
+ */
+
+public final class ThumbnailCache {
+
+    /**
+     * Max count of evicted thumbnails kept for reuse.
+     */
+    private static final int MAX_REUSABLE_COUNT = 4;
+
+    private final LruCache<String, Bitmap> mCache;
+    private final ArrayList<Bitmap> mReusable = new ArrayList<>(MAX_REUSABLE_COUNT);
+    private final HashMap<Bitmap, Integer> mHoldCounts = new HashMap<>();
+    private final HashSet<Bitmap> mEvictedHeld = new HashSet<>();
+
+    /**
+     * @param maxBytes max size of the cached thumbnails in bytes
+     */
+    public ThumbnailCache(int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes <= 0");
+        }
+        mCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                if (evicted) {
+                    onEvicted(oldValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * Create a cache taking the given share of the heap of the app.
+     *
+     * @param divisor the cache takes 1/divisor of the max heap size
+     * @return new cache
+     */
+    public static ThumbnailCache ofHeapShare(int divisor) {
+        return new ThumbnailCache((int) (Runtime.getRuntime().maxMemory() / divisor));
+    }
+
+    /**
+     * Get the thumbnail of a video position.
+     *
+     * @param key key built by {@link #keyOf}
+     * @return cached thumbnail, or null
+     */
+    public Bitmap get(String key) {
+        return mCache.get(key);
+    }
+
+    public void put(String key, Bitmap thumbnail) {
+        mCache.put(key, thumbnail);
+    }
+
+    /**
+     * Get a thumbnail to show, it is not reused until it is released.
+     *
+     * @param key key built by {@link #keyOf}
+     * @return cached thumbnail, or null
+     */
+    public synchronized Bitmap acquire(String key) {
+        final Bitmap thumbnail = mCache.get(key);
+        if (thumbnail != null) {
+            final Integer count = mHoldCounts.get(thumbnail);
+            mHoldCounts.put(thumbnail, count == null ? 1 : count + 1);
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Give back a thumbnail taken with {@link #acquire}, e.g. when the view showing it swaps
+     * images.
+     */
+    public synchronized void release(Bitmap thumbnail) {
+        final Integer count = mHoldCounts.get(thumbnail);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            mHoldCounts.put(thumbnail, count - 1);
+            return;
+        }
+        mHoldCounts.remove(thumbnail);
+        if (mEvictedHeld.remove(thumbnail)) {
+            addReusable(thumbnail);
+        }
+    }
+
+    /**
+     * Take an evicted thumbnail of the given size to draw a new one into.
+     *
+     * @return reusable bitmap, or null if there is none of this size
+     */
+    public synchronized Bitmap obtainReusable(int width, int height) {
+        for (int i = mReusable.size() - 1; i >= 0; i--) {
+            final Bitmap bitmap = mReusable.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                mReusable.remove(i);
+                return bitmap;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void onEvicted(Bitmap bitmap) {
+        if (mHoldCounts.containsKey(bitmap)) {
+            mEvictedHeld.add(bitmap);
+        } else {
+            addReusable(bitmap);
+        }
+    }
+
+    private void addReusable(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        if (mReusable.size() == MAX_REUSABLE_COUNT) {
+            mReusable.remove(0);
+        }
+        mReusable.add(bitmap);
+    }
+
+    /**
+     * Drop all thumbnails, the ones being shown stay valid.
+     */
+    public void clear() {
+        mCache.evictAll();
+        synchronized (this) {
+            mReusable.clear();
+            mEvictedHeld.clear();
+        }
+    }
+
+    /**
+     * @param uri   video uri
+     * @param index index of the position in the thumbnail strip of the video
+     * @return cache key of the thumbnail
+     */
+    public static String keyOf(String uri, int index) {
+        return uri + '#' + index;
+    }
+
+    /**
+     * @param uri    image or video uri
+     * @param width  width of the view the poster is shown in
+     * @param height height of the view the poster is shown in
+     * @return cache key of the poster
+     */
+    public static String posterKeyOf(String uri, int width, int height) {
+        return uri + '@' + width + 'x' + height;
+    }
+}
@@ -0,0 +1,524 @@
+package com.reactnativevideoplayer.cache;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A loopback HTTP proxy in front of remote videos, byte ranges are served from a
+ * {@link SegmentCache} and the missing segments are fetched from the network and cached,
+ * so replaying a video does not download it again.
+ * <p>
+ * Videos whose length is not known ahead, e.g. served chunked, are passed through uncached.
+ */
+
+public final class VideoCacheProxy {
+
+    private static final String TAG = "VideoCacheProxy";
+
+    private static final String CACHE_DIR = "video-cache";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 15000;
+    private static final int MAX_HEADER_LINES = 64;
+    private static final int RELAY_BUFFER_SIZE = 64 * 1024;
+    private static final int TOKEN_BYTES = 16;
+
+    private static VideoCacheProxy sInstance;
+
+    private final SegmentCache mCache;
+    private final BandwidthMeter mBandwidthMeter = new BandwidthMeter();
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    /**
+     * Random first path segment of the proxied uris, other apps on the device can reach the
+     * loopback port but can not guess it.
+     */
+    private final String mToken = createToken();
+
+    private ServerSocketChannel mServer;
+    private volatile int mPort = -1;
+
+    public VideoCacheProxy(SegmentCache cache) {
+        this.mCache = cache;
+    }
+
+    /**
+     * The proxy shared in the process, caching into the cache directory of the app.
+     */
+    public static synchronized VideoCacheProxy getInstance(Context context) {
+        if (sInstance == null) {
+            final File directory = new File(context.getApplicationContext().getCacheDir(),
+                    CACHE_DIR);
+            sInstance = new VideoCacheProxy(
+                    new SegmentCache(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_BYTES));
+            try {
+                sInstance.start();
+            } catch (IOException e) {
+                Log.w(TAG, "start proxy failed, videos will be played directly", e);
+            }
+        }
+        return sInstance;
+    }
+
+    public SegmentCache getCache() {
+        return mCache;
+    }
+
+    /**
+     * The meter measuring the downloads of the proxy, only the network reads are timed so a
+     * player reading slowly does not lower the estimate.
+     */
+    public BandwidthMeter getBandwidthMeter() {
+        return mBandwidthMeter;
+    }
+
+    /**
+     * Start listening on a random loopback port.
+     */
+    public synchronized void start() throws IOException {
+        if (mServer != null) {
+            return;
+        }
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+        mServer = server;
+        mPort = server.socket().getLocalPort();
+        final Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop(server);
+            }
+        }, TAG);
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Stop listening, the videos already routed through the proxy will fail to load.
+     */
+    public synchronized void shutdown() {
+        if (mServer == null) {
+            return;
+        }
+        mPort = -1;
+        try {
+            mServer.close();
+        } catch (IOException ignored) {
+        }
+        mServer = null;
+    }
+
+    /**
+     * Route a remote uri through the proxy.
+     *
+     * @param uri video uri
+     * @return the proxied uri, or the uri itself if it is not a http uri or the proxy is down
+     */
+    public String getProxyUrl(String uri) {
+        final int port = mPort;
+        if (port < 0 || TextUtils.isEmpty(uri) || !isRemote(uri)) {
+            return uri;
+        }
+        try {
+            return "http://127.0.0.1:" + port + "/" + mToken + "/" +
+                    URLEncoder.encode(uri, "UTF-8");
+        } catch (IOException e) {
+            return uri;
+        }
+    }
+
+    private static boolean isRemote(String uri) {
+        final String lower = uri.toLowerCase(Locale.US);
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    private static String createToken() {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder token = new StringBuilder(TOKEN_BYTES * 2);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return token.toString();
+    }
+
+    /**
+     * @param path path of a request, e.g. {@code /token/encoded-uri}
+     * @return the remote uri, or null if the token is wrong or the uri is not a http uri
+     */
+    private String parsePath(String path) throws IOException {
+        final int tokenEnd = mToken.length() + 1;
+        if (path.length() <= tokenEnd + 1 || path.charAt(0) != '/' ||
+                !path.regionMatches(1, mToken, 0, mToken.length()) ||
+                path.charAt(tokenEnd) != '/') {
+            return null;
+        }
+        final String uri = URLDecoder.decode(path.substring(tokenEnd + 1), "UTF-8");
+        return isRemote(uri) ? uri : null;
+    }
+
+    private void acceptLoop(ServerSocketChannel server) {
+        while (server.isOpen()) {
+            try {
+                final SocketChannel client = server.accept();
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(client);
+                    }
+                });
+            } catch (IOException e) {
+                if (server.isOpen()) {
+                    Log.w(TAG, "accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    client.socket().getInputStream(), "ISO-8859-1"));
+            final String requestLine = reader.readLine();
+            if (requestLine == null) {
+                return;
+            }
+            String rangeHeader = null;
+            String line;
+            for (int i = 0; i < MAX_HEADER_LINES && (line = reader.readLine()) != null
+                    && !line.isEmpty(); i++) {
+                if (line.regionMatches(true, 0, "Range:", 0, 6)) {
+                    rangeHeader = line.substring(6).trim();
+                }
+            }
+            final String[] parts = requestLine.split(" ");
+            if (parts.length < 2 || parts[1].length() < 2) {
+                writeAscii(client, "HTTP/1.1 400 Bad Request\r\nConnection: close\r\n\r\n");
+                return;
+            }
+            final boolean isHead = "HEAD".equals(parts[0]);
+            final String uri = parsePath(parts[1]);
+            if (uri == null) {
+                writeAscii(client, "HTTP/1.1 403 Forbidden\r\nConnection: close\r\n\r\n");
+                return;
+            }
+            serveVideo(client, uri, rangeHeader, isHead);
+        } catch (IOException e) {
+            Log.d(TAG, "serve failed: " + e);
+        } finally {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void serveVideo(SocketChannel client, String uri, String rangeHeader,
+                            boolean isHead) throws IOException {
+        final String key = SegmentCache.keyOf(uri);
+        SegmentCache.Meta meta = mCache.getMeta(key);
+        if (meta == null) {
+            meta = fetchMeta(uri);
+            if (meta == null) {
+                relay(client, uri, rangeHeader, isHead);
+                return;
+            }
+            mCache.putMeta(key, meta);
+        }
+        long start = 0;
+        long end = meta.length - 1;
+        final boolean isPartial = rangeHeader != null && rangeHeader.startsWith("bytes=");
+        if (isPartial) {
+            final String spec = rangeHeader.substring(6);
+            final int dash = spec.indexOf('-');
+            try {
+                if (dash == 0) {
+                    start = Math.max(0, meta.length - Long.parseLong(spec.substring(1).trim()));
+                } else if (dash > 0) {
+                    start = Long.parseLong(spec.substring(0, dash).trim());
+                    final String last = spec.substring(dash + 1).trim();
+                    if (!last.isEmpty() && last.indexOf(',') < 0) {
+                        end = Math.min(end, Long.parseLong(last));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                start = 0;
+            }
+        }
+        if (start > end) {
+            writeAscii(client, "HTTP/1.1 416 Range Not Satisfiable\r\nContent-Range: bytes */"
+                    + meta.length + "\r\nConnection: close\r\n\r\n");
+            return;
+        }
+        final StringBuilder headers = new StringBuilder(256);
+        headers.append(isPartial ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n")
+                .append("Accept-Ranges: bytes\r\n")
+                .append("Content-Length: ").append(end - start + 1).append("\r\n");
+        if (isPartial) {
+            headers.append("Content-Range: bytes ").append(start).append('-').append(end)
+                    .append('/').append(meta.length).append("\r\n");
+        }
+        if (!TextUtils.isEmpty(meta.contentType)) {
+            headers.append("Content-Type: ").append(meta.contentType).append("\r\n");
+        }
+        headers.append("Connection: close\r\n\r\n");
+        writeAscii(client, headers.toString());
+        if (!isHead) {
+            writeRange(client, uri, key, meta, start, end);
+        }
+    }
+
+    private void writeRange(SocketChannel client, String uri, String key,
+                            SegmentCache.Meta meta, long start, long end) throws IOException {
+        final int segmentSize = mCache.getSegmentSize();
+        long position = start;
+        while (position <= end) {
+            final int index = (int) (position / segmentSize);
+            final long segmentStart = (long) index * segmentSize;
+            final ByteBuffer segment = mCache.getSegment(key, index);
+            if (segment != null) {
+                final int limit = (int) Math.min(segment.capacity(), end - segmentStart + 1);
+                segment.position((int) (position - segmentStart));
+                segment.limit(limit);
+                writeFully(client, segment);
+                position = segmentStart + limit;
+            } else {
+                position = fetchSegments(client, uri, key, meta, index, position, end);
+            }
+        }
+    }
+
+    /**
+     * Download the run of missing segments starting at {@code index}, every segment is written
+     * to the client and to the cache.
+     *
+     * @return the position after the bytes written to the client
+     */
+    private long fetchSegments(SocketChannel client, String uri, String key,
+                               SegmentCache.Meta meta, int index, long position, long end)
+            throws IOException {
+        final int segmentSize = mCache.getSegmentSize();
+        final int lastIndex = (int) ((meta.length - 1) / segmentSize);
+        final int endIndex = (int) (end / segmentSize);
+        int missingEnd = index + 1;
+        while (missingEnd <= endIndex && !mCache.hasSegment(key, missingEnd)) {
+            missingEnd++;
+        }
+        final long fetchStart = (long) index * segmentSize;
+        final long fetchEnd = Math.min(meta.length, (long) missingEnd * segmentSize) - 1;
+
+        final HttpURLConnection connection = openConnection(uri);
+        connection.setRequestProperty("Range", "bytes=" + fetchStart + "-" + fetchEnd);
+        InputStream in = null;
+        try {
+            final int code = connection.getResponseCode();
+            if (code != HttpURLConnection.HTTP_PARTIAL && code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("unexpected response " + code + " for " + uri);
+            }
+            in = connection.getInputStream();
+            if (code == HttpURLConnection.HTTP_OK) {
+                skipFully(in, fetchStart);
+            }
+            final byte[] buffer = new byte[segmentSize];
+            for (int i = index; i < missingEnd && position <= end; i++) {
+                final long segmentStart = (long) i * segmentSize;
+                final int length = i == lastIndex ?
+                        (int) (meta.length - segmentStart) : segmentSize;
+                final long readStart = System.nanoTime();
+                readFully(in, buffer, length);
+                mBandwidthMeter.addSample(length, System.nanoTime() - readStart);
+                mCache.putSegment(key, i, buffer, length);
+
+                final int offset = (int) (position - segmentStart);
+                final int limit = (int) Math.min(length, end - segmentStart + 1);
+                writeFully(client, ByteBuffer.wrap(buffer, offset, limit - offset));
+                position = segmentStart + limit;
+            }
+            return position;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Find the length of a video with a HEAD request, or with a request of its first byte if
+     * the server rejects HEAD or leaves the length out, e.g. presigned GET urls.
+     *
+     * @return content information, or null if the length is not known ahead
+     */
+    private SegmentCache.Meta fetchMeta(String uri) {
+        final SegmentCache.Meta meta = requestMeta(uri, true);
+        return meta != null ? meta : requestMeta(uri, false);
+    }
+
+    private SegmentCache.Meta requestMeta(String uri, boolean isHead) {
+        HttpURLConnection connection = null;
+        try {
+            connection = openConnection(uri);
+            if (isHead) {
+                connection.setRequestMethod("HEAD");
+            } else {
+                connection.setRequestProperty("Range", "bytes=0-0");
+            }
+            final int code = connection.getResponseCode();
+            final long length;
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                final String range = connection.getHeaderField("Content-Range");
+                final int slash = range == null ? -1 : range.lastIndexOf('/');
+                length = slash < 0 ? -1 : parseLength(range.substring(slash + 1));
+            } else if (code / 100 == 2) {
+                length = parseLength(connection.getHeaderField("Content-Length"));
+            } else {
+                return null;
+            }
+            if (length <= 0) {
+                return null;
+            }
+            return new SegmentCache.Meta(length, connection.getContentType());
+        } catch (IOException e) {
+            Log.w(TAG, "fetch meta of " + uri + " failed", e);
+            return null;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Pass a request through to the server uncached, the response is written as it comes.
+     */
+    private void relay(SocketChannel client, String uri, String rangeHeader, boolean isHead)
+            throws IOException {
+        final HttpURLConnection connection = openConnection(uri);
+        if (isHead) {
+            connection.setRequestMethod("HEAD");
+        }
+        if (rangeHeader != null) {
+            connection.setRequestProperty("Range", rangeHeader);
+        }
+        InputStream in = null;
+        try {
+            final int code = connection.getResponseCode();
+            final StringBuilder headers = new StringBuilder(256);
+            headers.append("HTTP/1.1 ").append(code).append(' ')
+                    .append(code / 100 == 2 ? "OK" : "Error").append("\r\n");
+            appendHeader(headers, connection, "Content-Length");
+            appendHeader(headers, connection, "Content-Range");
+            appendHeader(headers, connection, "Content-Type");
+            appendHeader(headers, connection, "Accept-Ranges");
+            headers.append("Connection: close\r\n\r\n");
+            writeAscii(client, headers.toString());
+            if (isHead) {
+                return;
+            }
+            in = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in == null) {
+                return;
+            }
+            final byte[] buffer = new byte[RELAY_BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                writeFully(client, ByteBuffer.wrap(buffer, 0, count));
+            }
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+            connection.disconnect();
+        }
+    }
+
+    private static void appendHeader(StringBuilder headers, HttpURLConnection connection,
+                                     String name) {
+        final String value = connection.getHeaderField(name);
+        if (value != null) {
+            headers.append(name).append(": ").append(value).append("\r\n");
+        }
+    }
+
+    private static long parseLength(String length) {
+        try {
+            return length == null ? -1 : Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static HttpURLConnection openConnection(String uri) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(uri).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        return connection;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int count = in.read(buffer, read, length - read);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            final long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                count--;
+            } else {
+                count -= skipped;
+            }
+        }
+    }
+
+    private static void writeAscii(SocketChannel client, String text) throws IOException {
+        writeFully(client, ByteBuffer.wrap(text.getBytes("US-ASCII")));
+    }
+
+    private static void writeFully(SocketChannel client, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.reactnativevideoplayer.player;
+
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+
+import java.util.ArrayDeque;
+
+/**
+ * A process-wide pool of {@link MediaPlayer}, players are leased to views in the idle state
+ * and taken back on recycle, so mounting a player does not cost a new native player each time.
+ * <p>
+ * Players are leased and taken back on the {@link PlayerThread}.
+ */
+
+public final class MediaPlayerPool {
+
+    /**
+     * Default count of idle players kept alive by the pool.
+     */
+    public static final int DEFAULT_MAX_SIZE = 4;
+
+    private static MediaPlayerPool sDefault;
+
+    private final ArrayDeque<MediaPlayer> mIdlePlayers = new ArrayDeque<>();
+
+    private int mMaxSize;
+    private int mHitCount;
+    private int mMissCount;
+
+    public MediaPlayerPool(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        this.mMaxSize = maxSize;
+    }
+
+    /**
+     * The pool shared by all players which are not given a pool explicitly.
+     */
+    public static synchronized MediaPlayerPool getDefault() {
+        if (sDefault == null) {
+            sDefault = new MediaPlayerPool(DEFAULT_MAX_SIZE);
+        }
+        return sDefault;
+    }
+
+    /**
+     * Lease a player in the idle state.
+     *
+     * @return a pooled player if there is one, otherwise a new player
+     */
+    public synchronized MediaPlayer acquire() {
+        MediaPlayer player = mIdlePlayers.pollFirst();
+        if (player != null) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+            player = new MediaPlayer();
+        }
+        player.setAudioStreamType(AudioManager.STREAM_MUSIC);
+        return player;
+    }
+
+    /**
+     * Take back a leased player, the player will be reset and kept for the next lease,
+     * or released when the pool is full.
+     *
+     * @param player leased player
+     */
+    public void release(MediaPlayer player) {
+        if (player == null) {
+            return;
+        }
+        player.setOnErrorListener(null);
+        player.setOnPreparedListener(null);
+        player.setOnCompletionListener(null);
+        player.setOnBufferingUpdateListener(null);
+        player.setOnInfoListener(null);
+        player.setOnSeekCompleteListener(null);
+        player.reset();
+        player.setSurface(null);
+        synchronized (this) {
+            if (mIdlePlayers.size() < mMaxSize) {
+                mIdlePlayers.addFirst(player);
+                return;
+            }
+        }
+        player.release();
+    }
+
+    /**
+     * Set the max count of idle players, extra players will be released.
+     *
+     * @param maxSize max count of idle players
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        synchronized (this) {
+            this.mMaxSize = maxSize;
+        }
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Release all idle players.
+     */
+    public void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(int size) {
+        for (; ; ) {
+            final MediaPlayer player;
+            synchronized (this) {
+                if (mIdlePlayers.size() <= size) {
+                    return;
+                }
+                player = mIdlePlayers.pollLast();
+            }
+            player.release();
+        }
+    }
+
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized int getIdleCount() {
+        return mIdlePlayers.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MediaPlayerPool{idle=" + mIdlePlayers.size() + ", max=" + mMaxSize +
+                ", hit=" + mHitCount + ", miss=" + mMissCount + "}";
+    }
+}
@@ -0,0 +1,206 @@
+package com.reactnativevideoplayer.player;
+
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.reactnativevideoplayer.cache.VideoCacheProxy;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Prepares upcoming videos on off-screen players, a view which is going to play one of them
+ * takes the prepared player and only needs to attach its surface.
+ * <p>
+ * All public methods must be called on the main thread, the players are driven on the
+ * {@link PlayerThread}.
+ */
+
+public final class MediaPreloader {
+
+    private static final String TAG = "MediaPreloader";
+
+    /**
+     * Default count of videos kept prepared at the same time.
+     */
+    public static final int DEFAULT_MAX_COUNT = 2;
+
+    private final MediaPlayerPool mPlayerPool;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LinkedHashMap<String, Preloaded> mPreloaded = new LinkedHashMap<>();
+
+    private VideoCacheProxy mCacheProxy;
+    private int mMaxCount;
+
+    /**
+     * A player which is preparing or already prepared for a uri, its state is only accessed on
+     * the player-control thread.
+     */
+    public static final class Preloaded implements MediaPlayer.OnPreparedListener,
+            MediaPlayer.OnErrorListener {
+
+        private final MediaPreloader mPreloader;
+        private final String mUri;
+        private MediaPlayer mPlayer;
+        private boolean mIsPrepared;
+        private boolean mIsFailed;
+
+        private Preloaded(MediaPreloader preloader, String uri) {
+            this.mPreloader = preloader;
+            this.mUri = uri;
+        }
+
+        MediaPlayer getPlayer() {
+            return mPlayer;
+        }
+
+        boolean isPrepared() {
+            return mIsPrepared;
+        }
+
+        boolean isFailed() {
+            return mIsFailed;
+        }
+
+        @Override
+        public void onPrepared(MediaPlayer mp) {
+            mIsPrepared = true;
+        }
+
+        @Override
+        public boolean onError(MediaPlayer mp, int what, int extra) {
+            Log.w(TAG, "preload " + mUri + " failed, what: " + what + ", extra: " + extra);
+            mIsFailed = true;
+            mPreloader.onPreloadFailed(this);
+            return true;
+        }
+    }
+
+    public MediaPreloader(MediaPlayerPool playerPool, int maxCount) {
+        if (playerPool == null) {
+            throw new IllegalArgumentException("playerPool == null");
+        }
+        this.mPlayerPool = playerPool;
+        this.mMaxCount = maxCount;
+    }
+
+    /**
+     * Set the proxy which remote videos are routed through, it should be the same proxy
+     * used by the views taking the preloaded players.
+     *
+     * @param cacheProxy target proxy, null to preload remote videos directly
+     */
+    public void setCacheProxy(VideoCacheProxy cacheProxy) {
+        this.mCacheProxy = cacheProxy;
+    }
+
+    /**
+     * Start preparing a video in the background, the oldest preloaded video will be dropped
+     * when the max count is exceeded.
+     *
+     * @param uri target video uri
+     */
+    public void preload(String uri) {
+        if (TextUtils.isEmpty(uri) || mMaxCount <= 0) {
+            return;
+        }
+        if (mPreloaded.containsKey(uri)) {
+            return;
+        }
+        final Preloaded preloaded = new Preloaded(this, uri);
+        final String dataSource = mCacheProxy == null ? uri : mCacheProxy.getProxyUrl(uri);
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                final MediaPlayer player = mPlayerPool.acquire();
+                preloaded.mPlayer = player;
+                try {
+                    player.setOnPreparedListener(preloaded);
+                    player.setOnErrorListener(preloaded);
+                    player.setDataSource(dataSource);
+                    player.prepareAsync();
+                } catch (IOException | IllegalStateException e) {
+                    Log.w(TAG, "preload " + preloaded.mUri + " failed", e);
+                    preloaded.mIsFailed = true;
+                    onPreloadFailed(preloaded);
+                }
+            }
+        });
+        mPreloaded.put(uri, preloaded);
+        trimToSize(mMaxCount);
+    }
+
+    private void onPreloadFailed(final Preloaded preloaded) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mPreloaded.get(preloaded.mUri) == preloaded) {
+                    cancel(preloaded.mUri);
+                }
+            }
+        });
+    }
+
+    /**
+     * Take the player preloaded for a uri, called by {@link PlayerController#openPreloaded}
+     * which owns it afterwards.
+     *
+     * @param uri target video uri
+     * @return preloaded player, or null if the uri was not preloaded
+     */
+    public Preloaded take(String uri) {
+        return mPreloaded.remove(uri);
+    }
+
+    /**
+     * Drop a preloaded video.
+     *
+     * @param uri target video uri
+     */
+    public void cancel(String uri) {
+        final Preloaded preloaded = mPreloaded.remove(uri);
+        if (preloaded != null) {
+            recycle(preloaded);
+        }
+    }
+
+    /**
+     * Set the max count of videos kept prepared, the oldest ones will be dropped.
+     *
+     * @param maxCount max count of preloaded videos
+     */
+    public void setMaxCount(int maxCount) {
+        this.mMaxCount = maxCount;
+        trimToSize(maxCount);
+    }
+
+    /**
+     * Drop all preloaded videos.
+     */
+    public void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(int size) {
+        final Iterator<Preloaded> iterator = mPreloaded.values().iterator();
+        while (mPreloaded.size() > size && iterator.hasNext()) {
+            final Preloaded preloaded = iterator.next();
+            iterator.remove();
+            recycle(preloaded);
+        }
+    }
+
+    private void recycle(final Preloaded preloaded) {
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                mPlayerPool.release(preloaded.mPlayer);
+                preloaded.mPlayer = null;
+            }
+        });
+    }
+}
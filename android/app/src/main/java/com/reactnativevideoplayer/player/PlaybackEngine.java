@@ -0,0 +1,131 @@
+package com.reactnativevideoplayer.player;
+
+import android.view.Surface;
+
+/**
+ * A player a {@link com.reactnativevideoplayer.view.VideoPlayer} plays its videos with. Commands
+ * may run asynchronously, state comes back through {@link Callback}.
+ * <p>
+ * All methods are called on the main thread and all callbacks must be delivered there. Info and
+ * error codes follow the codes of {@link android.media.MediaPlayer}.
+ */
+
+public interface PlaybackEngine {
+
+    int STATE_IDLE = 0;
+    int STATE_PREPARING = 1;
+    int STATE_PREPARED = 2;
+    int STATE_STARTED = 3;
+    int STATE_PAUSED = 4;
+    int STATE_COMPLETED = 5;
+    int STATE_STOPPED = 6;
+    int STATE_ERROR = 7;
+    int STATE_RELEASED = 8;
+
+    interface Callback {
+
+        void onPrepared(PlaybackEngine engine);
+
+        void onCompletion(PlaybackEngine engine);
+
+        void onBufferingUpdate(PlaybackEngine engine, int percent);
+
+        void onInfo(PlaybackEngine engine, int what, int extra);
+
+        /**
+         * Called when the engine settled at the latest seek target, seeks replaced by a later
+         * one are not reported.
+         */
+        void onSeekComplete(PlaybackEngine engine);
+
+        /**
+         * Called when the engine moved on to the video given to {@link #prepareNext} without
+         * completing, the duration and video size are those of the new video.
+         */
+        void onTransition(PlaybackEngine engine);
+
+        void onError(PlaybackEngine engine, int what, int extra);
+    }
+
+    /**
+     * Creates the engines of a view.
+     */
+    interface Factory {
+
+        PlaybackEngine create(Callback callback);
+    }
+
+    void setSurface(Surface surface);
+
+    /**
+     * Play the video again from the start when it reaches the end, instead of completing.
+     *
+     * @param looping true to loop the video
+     */
+    void setLooping(boolean looping);
+
+    /**
+     * Reset the engine and prepare a new video asynchronously.
+     *
+     * @param uri target video uri
+     */
+    void open(String uri);
+
+    /**
+     * Take over the video if the preloader prepared it ahead, instead of opening it. Engines
+     * which can not play preloaded videos leave the preloader alone and return false.
+     *
+     * @param preloader preloader which may hold the video
+     * @param uri       target video uri, as it was preloaded
+     * @return true if the engine took over the video, otherwise it should be opened
+     */
+    boolean openPreloaded(MediaPreloader preloader, String uri);
+
+    /**
+     * Prepare the video following the current one, so it starts without a gap when the current
+     * one reaches the end. Engines which can not do so ignore it and complete normally.
+     *
+     * @param uri next video uri, null to drop the next video
+     */
+    void prepareNext(String uri);
+
+    /**
+     * Prepare the current video again after it was stopped.
+     */
+    void prepare();
+
+    void start();
+
+    void pause();
+
+    /**
+     * Seek to a position, seeks issued while one is in flight may be coalesced.
+     *
+     * @param msec target position
+     */
+    void seekTo(int msec);
+
+    void stop();
+
+    /**
+     * Release the resources of the engine, it can not be used afterwards.
+     */
+    void release();
+
+    int getState();
+
+    /**
+     * @return true if the video is prepared, whether it is playing or not
+     */
+    boolean isPrepared();
+
+    boolean isPlaying();
+
+    int getDuration();
+
+    int getVideoWidth();
+
+    int getVideoHeight();
+
+    int getCurrentPosition();
+}
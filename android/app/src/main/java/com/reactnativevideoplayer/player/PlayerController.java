@@ -0,0 +1,622 @@
+package com.reactnativevideoplayer.player;
+
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Surface;
+
+import java.io.IOException;
+
+/**
+ * The {@link MediaPlayer} engine, drives a pooled player from the {@link PlayerThread}. Commands
+ * are sent from the main thread and run in order on the player-control thread, state comes back
+ * to the main thread through {@link Callback}.
+ * <p>
+ * All public methods must be called on the main thread.
+ */
+
+public final class PlayerController implements PlaybackEngine, MediaPlayer.OnPreparedListener,
+        MediaPlayer.OnCompletionListener, MediaPlayer.OnBufferingUpdateListener,
+        MediaPlayer.OnErrorListener, MediaPlayer.OnInfoListener,
+        MediaPlayer.OnSeekCompleteListener {
+
+    private static final String TAG = "PlayerController";
+
+    /**
+     * How often the position of a playing video is read on the player-control thread.
+     */
+    private static final int POSITION_POLL_INTERVAL = 100;
+
+    private final MediaPlayerPool mPlayerPool;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private Callback mCallback;
+
+    /* Main thread state. */
+    private int mState = STATE_IDLE;
+    private int mGeneration;
+    private int mDuration;
+    private int mVideoWidth;
+    private int mVideoHeight;
+    private int mLastPosition;
+    private boolean mIsSeeking;
+    private int mPendingSeek = -1;
+
+    /* Player-control thread state. */
+    private MediaPlayer mPlayer;
+    private Surface mSurface;
+    private boolean mLooping;
+    private int mPlayerGeneration;
+    private MediaPlayer mNextPlayer;
+    private boolean mIsNextPrepared;
+    private boolean mIsPolling;
+
+    /* Written on the player-control thread, read on the main thread. */
+    private volatile int mPolledPosition;
+
+    private final NextPlayerListener mNextPlayerListener = new NextPlayerListener();
+
+    /**
+     * Publishes the position while the video plays, runs on the player-control thread.
+     */
+    private final Runnable mPositionPoller = new Runnable() {
+        @Override
+        public void run() {
+            if (!mIsPolling || mPlayer == null) {
+                return;
+            }
+            publishPosition();
+            PlayerThread.getHandler().postDelayed(this, POSITION_POLL_INTERVAL);
+        }
+    };
+
+    /**
+     * Chains the next player to the current one once it is prepared, runs on the player-control
+     * thread.
+     */
+    private final class NextPlayerListener implements MediaPlayer.OnPreparedListener,
+            MediaPlayer.OnErrorListener {
+
+        @Override
+        public void onPrepared(MediaPlayer mp) {
+            if (mp != mNextPlayer) {
+                return;
+            }
+            mIsNextPrepared = true;
+            try {
+                mPlayer.setNextMediaPlayer(mp);
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "chain next player failed", e);
+                releaseNext();
+            }
+        }
+
+        @Override
+        public boolean onError(MediaPlayer mp, int what, int extra) {
+            if (mp == mNextPlayer) {
+                Log.w(TAG, "prepare next failed, what: " + what + ", extra: " + extra);
+                releaseNext();
+            }
+            return true;
+        }
+    }
+
+    public PlayerController(MediaPlayerPool playerPool, Callback callback) {
+        this.mPlayerPool = playerPool;
+        this.mCallback = callback;
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                attach(mPlayerPool.acquire());
+            }
+        });
+    }
+
+    private void attach(MediaPlayer player) {
+        mPlayer = player;
+        mPlayer.setOnErrorListener(this);
+        mPlayer.setOnPreparedListener(this);
+        mPlayer.setOnCompletionListener(this);
+        mPlayer.setOnBufferingUpdateListener(this);
+        mPlayer.setOnInfoListener(this);
+        mPlayer.setOnSeekCompleteListener(this);
+        mPlayer.setSurface(mSurface);
+        mPlayer.setLooping(mLooping);
+    }
+
+    @Override
+    public void setSurface(final Surface surface) {
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                mSurface = surface;
+                if (mPlayer != null) {
+                    mPlayer.setSurface(surface);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void setLooping(final boolean looping) {
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                mLooping = looping;
+                if (mPlayer != null) {
+                    mPlayer.setLooping(looping);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void open(final String uri) {
+        final int generation = newGeneration();
+        mState = STATE_PREPARING;
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                mPlayerGeneration = generation;
+                stopPolling();
+                releaseNext();
+                try {
+                    mPlayer.reset();
+                    mPlayer.setDataSource(uri);
+                    mPlayer.setLooping(mLooping);
+                    mPlayer.prepareAsync();
+                } catch (IOException | IllegalStateException e) {
+                    Log.w(TAG, "open " + uri + " failed", e);
+                    dispatchError(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_IO);
+                }
+            }
+        });
+    }
+
+    /**
+     * The preloaded player is taken over, the current player goes back to the pool.
+     */
+    @Override
+    public boolean openPreloaded(MediaPreloader preloader, String uri) {
+        final MediaPreloader.Preloaded preloaded = preloader.take(uri);
+        if (preloaded == null) {
+            return false;
+        }
+        adopt(preloaded);
+        return true;
+    }
+
+    private void adopt(final MediaPreloader.Preloaded preloaded) {
+        final int generation = newGeneration();
+        mState = STATE_PREPARING;
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                mPlayerGeneration = generation;
+                stopPolling();
+                releaseNext();
+                mPlayerPool.release(mPlayer);
+                attach(preloaded.getPlayer());
+                if (preloaded.isFailed()) {
+                    dispatchError(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_IO);
+                } else if (preloaded.isPrepared()) {
+                    dispatchPrepared();
+                }
+            }
+        });
+    }
+
+    /**
+     * The next video is prepared on a second player, which is chained to the current one. It
+     * starts as soon as the current video reaches the end and takes over the surface, then
+     * {@link Callback#onTransition} is called.
+     */
+    @Override
+    public void prepareNext(final String uri) {
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                releaseNext();
+                if (uri == null || mPlayer == null) {
+                    return;
+                }
+                mNextPlayer = mPlayerPool.acquire();
+                try {
+                    mNextPlayer.setOnPreparedListener(mNextPlayerListener);
+                    mNextPlayer.setOnErrorListener(mNextPlayerListener);
+                    mNextPlayer.setDataSource(uri);
+                    mNextPlayer.prepareAsync();
+                } catch (IOException | IllegalStateException e) {
+                    Log.w(TAG, "prepare next " + uri + " failed", e);
+                    releaseNext();
+                }
+            }
+        });
+    }
+
+    private void releaseNext() {
+        if (mNextPlayer == null) {
+            return;
+        }
+        if (mIsNextPrepared && mPlayer != null) {
+            try {
+                mPlayer.setNextMediaPlayer(null);
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "unchain next player failed", e);
+            }
+        }
+        mPlayerPool.release(mNextPlayer);
+        mNextPlayer = null;
+        mIsNextPrepared = false;
+    }
+
+    @Override
+    public void prepare() {
+        mState = STATE_PREPARING;
+        post(new Runnable() {
+            @Override
+            public void run() {
+                mPlayer.prepareAsync();
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        if (!isPrepared()) {
+            return;
+        }
+        mState = STATE_STARTED;
+        post(new Runnable() {
+            @Override
+            public void run() {
+                mPlayer.start();
+                startPolling();
+            }
+        });
+    }
+
+    @Override
+    public void pause() {
+        if (mState != STATE_STARTED) {
+            return;
+        }
+        mLastPosition = getCurrentPosition();
+        mState = STATE_PAUSED;
+        post(new Runnable() {
+            @Override
+            public void run() {
+                mPlayer.pause();
+                stopPolling();
+            }
+        });
+    }
+
+    /**
+     * Only one seek is in flight at a time, a seek issued meanwhile waits for it and replaces
+     * any other waiting seek, so fast scrubbing does not pile up seeks.
+     */
+    @Override
+    public void seekTo(int msec) {
+        if (!isPrepared()) {
+            return;
+        }
+        mLastPosition = msec;
+        if (mIsSeeking) {
+            mPendingSeek = msec;
+            return;
+        }
+        issueSeek(msec);
+    }
+
+    private void issueSeek(final int msec) {
+        mIsSeeking = true;
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mPlayer.seekTo(msec);
+                } catch (IllegalStateException e) {
+                    Log.w(TAG, "seek to " + msec + " failed", e);
+                    onSeekComplete(mPlayer);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        if (!isPrepared()) {
+            return;
+        }
+        final int generation = newGeneration();
+        mState = STATE_STOPPED;
+        mLastPosition = 0;
+        post(new Runnable() {
+            @Override
+            public void run() {
+                mPlayerGeneration = generation;
+                stopPolling();
+                releaseNext();
+                mPlayer.stop();
+            }
+        });
+    }
+
+    /**
+     * Give the player back to the pool, the controller can not be used afterwards.
+     */
+    @Override
+    public void release() {
+        if (mState == STATE_RELEASED) {
+            return;
+        }
+        newGeneration();
+        mState = STATE_RELEASED;
+        mCallback = null;
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                stopPolling();
+                releaseNext();
+                mPlayerPool.release(mPlayer);
+                mPlayer = null;
+                mSurface = null;
+            }
+        });
+    }
+
+    @Override
+    public int getState() {
+        return mState;
+    }
+
+    @Override
+    public boolean isPrepared() {
+        return mState == STATE_PREPARED || mState == STATE_STARTED || mState == STATE_PAUSED ||
+                mState == STATE_COMPLETED;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mState == STATE_STARTED;
+    }
+
+    @Override
+    public int getDuration() {
+        return mDuration;
+    }
+
+    @Override
+    public int getVideoWidth() {
+        return mVideoWidth;
+    }
+
+    @Override
+    public int getVideoHeight() {
+        return mVideoHeight;
+    }
+
+    /**
+     * The player is never read on the main thread, the position is the one last published by
+     * the player-control thread, or the target of a seek in flight.
+     */
+    @Override
+    public int getCurrentPosition() {
+        if (!mIsSeeking && (mState == STATE_PREPARED || mState == STATE_STARTED ||
+                mState == STATE_PAUSED)) {
+            return mPolledPosition;
+        }
+        return mLastPosition;
+    }
+
+    private void startPolling() {
+        if (!mIsPolling) {
+            mIsPolling = true;
+            PlayerThread.getHandler().post(mPositionPoller);
+        }
+    }
+
+    /**
+     * Stop polling, the position the player stopped at is still published.
+     */
+    private void stopPolling() {
+        if (mIsPolling) {
+            mIsPolling = false;
+            PlayerThread.getHandler().removeCallbacks(mPositionPoller);
+        }
+        if (mPlayer != null) {
+            publishPosition();
+        }
+    }
+
+    private void publishPosition() {
+        try {
+            mPolledPosition = mPlayer.getCurrentPosition();
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "read position failed", e);
+        }
+    }
+
+    private int newGeneration() {
+        mIsSeeking = false;
+        mPendingSeek = -1;
+        return ++mGeneration;
+    }
+
+    private void post(final Runnable command) {
+        PlayerThread.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    command.run();
+                } catch (IllegalStateException e) {
+                    Log.w(TAG, "player command failed", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onPrepared(MediaPlayer mp) {
+        dispatchPrepared();
+    }
+
+    private void dispatchPrepared() {
+        final int generation = mPlayerGeneration;
+        final int duration = mPlayer.getDuration();
+        final int videoWidth = mPlayer.getVideoWidth();
+        final int videoHeight = mPlayer.getVideoHeight();
+        mPolledPosition = 0;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration || mState != STATE_PREPARING) {
+                    return;
+                }
+                mDuration = duration;
+                mVideoWidth = videoWidth;
+                mVideoHeight = videoHeight;
+                mLastPosition = 0;
+                mState = STATE_PREPARED;
+                if (mCallback != null) {
+                    mCallback.onPrepared(PlayerController.this);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onCompletion(MediaPlayer mp) {
+        if (mIsNextPrepared) {
+            moveToNext();
+            return;
+        }
+        stopPolling();
+        final int generation = mPlayerGeneration;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration || !isPrepared()) {
+                    return;
+                }
+                mLastPosition = mDuration;
+                mState = STATE_COMPLETED;
+                if (mCallback != null) {
+                    mCallback.onCompletion(PlayerController.this);
+                }
+            }
+        });
+    }
+
+    /**
+     * The chained next player already started, it only needs the surface of the completed one.
+     */
+    private void moveToNext() {
+        final MediaPlayer next = mNextPlayer;
+        mNextPlayer = null;
+        mIsNextPrepared = false;
+        mPlayerPool.release(mPlayer);
+        attach(next);
+        if (!next.isPlaying()) {
+            next.start();
+        }
+        final int generation = mPlayerGeneration;
+        final int duration = next.getDuration();
+        final int videoWidth = next.getVideoWidth();
+        final int videoHeight = next.getVideoHeight();
+        publishPosition();
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                mDuration = duration;
+                mVideoWidth = videoWidth;
+                mVideoHeight = videoHeight;
+                mLastPosition = 0;
+                mIsSeeking = false;
+                mPendingSeek = -1;
+                if (mCallback != null) {
+                    mCallback.onTransition(PlayerController.this);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onBufferingUpdate(MediaPlayer mp, final int percent) {
+        final int generation = mPlayerGeneration;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == mGeneration && mCallback != null) {
+                    mCallback.onBufferingUpdate(PlayerController.this, percent);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean onInfo(MediaPlayer mp, final int what, final int extra) {
+        final int generation = mPlayerGeneration;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == mGeneration && mCallback != null) {
+                    mCallback.onInfo(PlayerController.this, what, extra);
+                }
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public void onSeekComplete(MediaPlayer mp) {
+        if (mp == mPlayer) {
+            publishPosition();
+        }
+        final int generation = mPlayerGeneration;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                mIsSeeking = false;
+                if (mPendingSeek >= 0) {
+                    final int target = mPendingSeek;
+                    mPendingSeek = -1;
+                    issueSeek(target);
+                } else if (mCallback != null) {
+                    mCallback.onSeekComplete(PlayerController.this);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean onError(MediaPlayer mp, int what, int extra) {
+        mIsPolling = false;
+        PlayerThread.getHandler().removeCallbacks(mPositionPoller);
+        dispatchError(what, extra);
+        return true;
+    }
+
+    private void dispatchError(final int what, final int extra) {
+        final int generation = mPlayerGeneration;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration || mState == STATE_RELEASED) {
+                    return;
+                }
+                mState = STATE_ERROR;
+                if (mCallback != null) {
+                    mCallback.onError(PlayerController.this, what, extra);
+                }
+            }
+        });
+    }
+}
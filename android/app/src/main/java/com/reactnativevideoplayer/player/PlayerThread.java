@@ -0,0 +1,44 @@
+package com.reactnativevideoplayer.player;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+/**
+ * The player-control thread, every call into a {@link android.media.MediaPlayer} of the players
+ * runs here in the order it was posted, so the main thread never blocks on the codec.
+ * <p>
+ * Players are also created here, their callbacks are delivered on this thread as well.
+ */
+
+public final class PlayerThread {
+
+    private static final String NAME = "player-control";
+
+    private static Handler sHandler;
+
+    private PlayerThread() {
+    }
+
+    public static synchronized Handler getHandler() {
+        if (sHandler == null) {
+            final HandlerThread thread = new HandlerThread(NAME);
+            thread.start();
+            sHandler = new Handler(thread.getLooper());
+        }
+        return sHandler;
+    }
+
+    /**
+     * Queue a command behind all commands posted before.
+     *
+     * @param command target command
+     */
+    public static void post(Runnable command) {
+        getHandler().post(command);
+    }
+
+    public static boolean isCurrentThread() {
+        return Looper.myLooper() == getHandler().getLooper();
+    }
+}
@@ -0,0 +1,245 @@
+package com.reactnativevideoplayer.player;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.reactnativevideoplayer.cache.ThumbnailCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Loads the poster shown in place of a video until its first frame renders, on the thumbnail
+ * thread. The poster is an image downsampled while decoding to the size of the view, or the
+ * first frame of the video when there is no image. Posters are kept in a
+ * {@link ThumbnailCache} shared by all views.
+ * <p>
+ * All public methods must be called on the main thread, posters are delivered there.
+ */
+
+public final class PosterLoader {
+
+    private static final String TAG = "PosterLoader";
+
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 15000;
+
+    /**
+     * Images larger than this are not loaded.
+     */
+    private static final int MAX_IMAGE_BYTES = 16 * 1024 * 1024;
+
+    public interface Callback {
+
+        void onPoster(Bitmap poster);
+    }
+
+    private final Context mContext;
+    private final ThumbnailCache mCache;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private volatile int mGeneration;
+
+    /**
+     * @param context context the content uris are resolved with
+     * @param cache   cache the posters are kept in
+     */
+    public PosterLoader(Context context, ThumbnailCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("cache == null");
+        }
+        this.mContext = context.getApplicationContext();
+        this.mCache = cache;
+    }
+
+    /**
+     * Load a poster, the previous load is cancelled. A cached poster is delivered right away.
+     *
+     * @param imageUri   image uri, null to use the first frame of the video
+     * @param videoUri   video uri, the cache key of its first frame
+     * @param dataSource where the first frame is read from, e.g. the cache proxy url of the uri
+     * @param width      width of the view
+     * @param height     height of the view
+     * @param callback   receives the poster
+     */
+    public void load(final String imageUri, final String videoUri, final String dataSource,
+                     final int width, final int height, final Callback callback) {
+        cancel();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        final String key = ThumbnailCache.posterKeyOf(imageUri != null ? imageUri : videoUri,
+                width, height);
+        final Bitmap cached = mCache.get(key);
+        if (cached != null) {
+            callback.onPoster(cached);
+            return;
+        }
+        final int generation = mGeneration;
+        ThumbnailExtractor.getHandler().postAtFrontOfQueue(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                Bitmap poster = mCache.get(key);
+                if (poster == null) {
+                    poster = imageUri != null ? decodeImage(imageUri, width, height) :
+                            extractFirstFrame(videoUri, dataSource, width, height);
+                    if (poster == null) {
+                        return;
+                    }
+                    mCache.put(key, poster);
+                }
+                deliver(generation, poster, callback);
+            }
+        });
+    }
+
+    /**
+     * Drop the pending load, a poster being decoded is not delivered.
+     */
+    public void cancel() {
+        mGeneration++;
+    }
+
+    private void deliver(final int generation, final Bitmap poster, final Callback callback) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == mGeneration) {
+                    callback.onPoster(poster);
+                }
+            }
+        });
+    }
+
+    /**
+     * Decode an image at the smallest power of two downsampling still covering the view, runs
+     * on the thumbnail thread. JPEG images have no alpha and are decoded at half the memory,
+     * other formats may be translucent.
+     */
+    private Bitmap decodeImage(String uri, int width, int height) {
+        final byte[] data;
+        try {
+            data = readImage(uri);
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "read " + uri + " failed", e);
+            return null;
+        }
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.w(TAG, "decode " + uri + " failed");
+            return null;
+        }
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width &&
+                options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = "image/jpeg".equals(options.outMimeType) ?
+                Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    private byte[] readImage(String uri) throws IOException {
+        final Uri parsed = Uri.parse(uri);
+        final String scheme = parsed.getScheme();
+        HttpURLConnection connection = null;
+        InputStream in = null;
+        try {
+            if ("http".equals(scheme) || "https".equals(scheme)) {
+                connection = (HttpURLConnection) new URL(uri).openConnection();
+                connection.setConnectTimeout(CONNECT_TIMEOUT);
+                connection.setReadTimeout(READ_TIMEOUT);
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("http " + connection.getResponseCode());
+                }
+                in = connection.getInputStream();
+            } else if (scheme == null) {
+                in = new FileInputStream(uri);
+            } else {
+                in = mContext.getContentResolver().openInputStream(parsed);
+                if (in == null) {
+                    throw new IOException("no content");
+                }
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (out.size() > MAX_IMAGE_BYTES) {
+                    throw new IOException("image larger than " + MAX_IMAGE_BYTES);
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            closeQuietly(in);
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Extract the first frame of a video scaled down to cover the view, runs on the thumbnail
+     * thread.
+     */
+    private Bitmap extractFirstFrame(String uri, String dataSource, int width, int height) {
+        final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        final Bitmap frame;
+        try {
+            ThumbnailExtractor.setDataSource(retriever, dataSource);
+            frame = retriever.getFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "extract first frame of " + uri + " failed", e);
+            return null;
+        } finally {
+            retriever.release();
+        }
+        if (frame == null || frame.getWidth() <= 0 || frame.getHeight() <= 0) {
+            return null;
+        }
+        final float scale = Math.min(1F, Math.max((float) width / frame.getWidth(),
+                (float) height / frame.getHeight()));
+        Bitmap poster = Bitmap.createScaledBitmap(frame,
+                Math.max(1, Math.round(frame.getWidth() * scale)),
+                Math.max(1, Math.round(frame.getHeight() * scale)), true);
+        if (poster.isMutable()) {
+            // Mutable bitmaps evicted from the cache are drawn over by the thumbnails.
+            final Bitmap immutable = poster.copy(Bitmap.Config.RGB_565, false);
+            if (poster != frame) {
+                poster.recycle();
+            }
+            poster = immutable;
+        }
+        if (poster != frame) {
+            frame.recycle();
+        }
+        return poster;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.reactnativevideoplayer.player;
+
+import android.text.TextUtils;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One encoding of a video, a video may be offered in several renditions of different bitrates
+ * and resolutions.
+ */
+
+public final class Rendition {
+
+    /**
+     * Orders renditions by ascending bitrate.
+     */
+    public static final Comparator<Rendition> BY_BITRATE = new Comparator<Rendition>() {
+        @Override
+        public int compare(Rendition lhs, Rendition rhs) {
+            return lhs.mBitrate < rhs.mBitrate ? -1 : (lhs.mBitrate == rhs.mBitrate ? 0 : 1);
+        }
+    };
+
+    /**
+     * Share of the estimated bandwidth a selected rendition may take.
+     */
+    private static final double BANDWIDTH_FRACTION = 0.75;
+
+    private final String mUri;
+    private final long mBitrate;
+    private final int mWidth;
+    private final int mHeight;
+
+    /**
+     * @param uri     video uri
+     * @param bitrate bitrate in bits per second
+     * @param width   video width in pixels, 0 if unknown
+     * @param height  video height in pixels, 0 if unknown
+     */
+    public Rendition(String uri, long bitrate, int width, int height) {
+        if (TextUtils.isEmpty(uri)) {
+            throw new IllegalArgumentException("uri is empty");
+        }
+        if (bitrate <= 0) {
+            throw new IllegalArgumentException("bitrate <= 0");
+        }
+        this.mUri = uri;
+        this.mBitrate = bitrate;
+        this.mWidth = width;
+        this.mHeight = height;
+    }
+
+    public String getUri() {
+        return mUri;
+    }
+
+    public long getBitrate() {
+        return mBitrate;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    private boolean fits(int viewWidth, int viewHeight) {
+        return mWidth <= 0 || mHeight <= 0 || viewWidth <= 0 || viewHeight <= 0 ||
+                (mWidth <= viewWidth && mHeight <= viewHeight);
+    }
+
+    /**
+     * Select the rendition to play: the one of the highest bitrate the bandwidth sustains, among
+     * those not larger than the view. The lowest fitting rendition is selected if none is
+     * sustained, the lowest one if none fits.
+     *
+     * @param renditions renditions ordered by {@link #BY_BITRATE}, not empty
+     * @param bandwidth  estimated bandwidth in bits per second
+     * @param viewWidth  width the video is shown at, 0 if unknown
+     * @param viewHeight height the video is shown at, 0 if unknown
+     * @return index of the selected rendition
+     */
+    public static int select(List<Rendition> renditions, long bandwidth,
+                             int viewWidth, int viewHeight) {
+        final long budget = (long) (bandwidth * BANDWIDTH_FRACTION);
+        int lowestFitting = -1;
+        int selected = -1;
+        for (int i = 0; i < renditions.size(); i++) {
+            final Rendition rendition = renditions.get(i);
+            if (!rendition.fits(viewWidth, viewHeight)) {
+                continue;
+            }
+            if (lowestFitting < 0) {
+                lowestFitting = i;
+            }
+            if (rendition.mBitrate <= budget) {
+                selected = i;
+            }
+        }
+        if (selected >= 0) {
+            return selected;
+        }
+        return lowestFitting >= 0 ? lowestFitting : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Rendition{" + mWidth + "x" + mHeight + ", " + mBitrate + "bps, " + mUri + "}";
+    }
+}
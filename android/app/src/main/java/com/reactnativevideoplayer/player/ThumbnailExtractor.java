@@ -0,0 +1,331 @@
+package com.reactnativevideoplayer.player;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import com.reactnativevideoplayer.cache.ThumbnailCache;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Pulls seek preview thumbnails of a video with {@link MediaMetadataRetriever} on a background
+ * thread shared by all extractors. The positions of a video are split into a strip of slots,
+ * every {@link #PREFETCH_STRIDE}th slot is prefetched once previews may be shown and the slot
+ * being scrubbed is extracted ahead of them. Nothing is read from the video before either.
+ * <p>
+ * All public methods must be called on the main thread, thumbnails are delivered there.
+ */
+
+public final class ThumbnailExtractor {
+
+    private static final String TAG = "ThumbnailExtractor";
+
+    /**
+     * Min time between two slots of the strip, in milliseconds.
+     */
+    private static final int MIN_SLOT_INTERVAL = 1000;
+
+    /**
+     * Max count of slots of the strip.
+     */
+    private static final int MAX_SLOT_COUNT = 100;
+
+    /**
+     * Every this many slots one is prefetched.
+     */
+    private static final int PREFETCH_STRIDE = 5;
+
+    private static Handler sHandler;
+
+    public interface Callback {
+
+        /**
+         * @param positionMs position the thumbnail was requested for
+         * @param thumbnail  thumbnail of the slot of the position, or the nearest prefetched
+         *                   one while the slot is being extracted. It is acquired from the
+         *                   cache for the receiver, which releases it when it stops showing it
+         */
+        void onThumbnail(int positionMs, Bitmap thumbnail);
+    }
+
+    private final ThumbnailCache mCache;
+    private final int mThumbnailWidth;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /* Main thread state. */
+    private volatile int mGeneration;
+    private String mUri;
+    private String mDataSource;
+    private int mDurationMs;
+    private boolean mIsPrefetching;
+    private int mSlotInterval;
+    private int mRequestedSlot = -1;
+    private int mRequestedPosition;
+    private Callback mCallback;
+
+    /* Extraction thread state. */
+    private MediaMetadataRetriever mRetriever;
+    private int mRetrieverGeneration = -1;
+    private final Canvas mCanvas = new Canvas();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect mDstRect = new Rect();
+
+    /**
+     * @param cache          cache the thumbnails are kept in
+     * @param thumbnailWidth width of the thumbnails in pixels, the height follows the video
+     */
+    public ThumbnailExtractor(ThumbnailCache cache, int thumbnailWidth) {
+        if (cache == null) {
+            throw new IllegalArgumentException("cache == null");
+        }
+        if (thumbnailWidth <= 0) {
+            throw new IllegalArgumentException("thumbnailWidth <= 0");
+        }
+        this.mCache = cache;
+        this.mThumbnailWidth = thumbnailWidth;
+    }
+
+    /**
+     * The background thread shared by the extractors and the poster loaders.
+     */
+    static synchronized Handler getHandler() {
+        if (sHandler == null) {
+            final HandlerThread thread = new HandlerThread("thumbnail",
+                    Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            sHandler = new Handler(thread.getLooper());
+        }
+        return sHandler;
+    }
+
+    /**
+     * Open a video, the previous video is closed. The video is only read once the strip is
+     * prefetched or a thumbnail is requested. Opening the video which is open already keeps
+     * its strip.
+     *
+     * @param uri        video uri, the cache key of its thumbnails
+     * @param dataSource where the frames are read from, e.g. the cache proxy url of the uri
+     * @param durationMs duration of the video
+     * @param callback   receives the requested thumbnails
+     */
+    public void open(String uri, String dataSource, int durationMs, Callback callback) {
+        if (uri.equals(mUri)) {
+            mCallback = callback;
+            return;
+        }
+        close();
+        if (durationMs <= 0) {
+            return;
+        }
+        mUri = uri;
+        mDataSource = dataSource;
+        mDurationMs = durationMs;
+        mCallback = callback;
+        mSlotInterval = Math.max(MIN_SLOT_INTERVAL, durationMs / MAX_SLOT_COUNT);
+    }
+
+    /**
+     * Start prefetching the strip of the open video, e.g. when a seek bar is shown. Prefetching
+     * again does nothing.
+     */
+    public void prefetch() {
+        if (mUri == null || mIsPrefetching) {
+            return;
+        }
+        mIsPrefetching = true;
+        final int generation = mGeneration;
+        final String uri = mUri;
+        final String dataSource = mDataSource;
+        final int slotInterval = mSlotInterval;
+        final Handler handler = getHandler();
+        final int slotCount = mDurationMs / slotInterval + 1;
+        for (int slot = 0; slot < slotCount; slot += PREFETCH_STRIDE) {
+            final int prefetchSlot = slot;
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    extract(generation, uri, dataSource, prefetchSlot, slotInterval);
+                }
+            });
+        }
+    }
+
+    /**
+     * Request the thumbnail of a position, it is delivered right away if cached. Only the
+     * latest request is served, requests falling into the same slot are ignored.
+     *
+     * @param positionMs target position
+     */
+    public void request(int positionMs) {
+        if (mUri == null) {
+            return;
+        }
+        final int slot = positionMs / mSlotInterval;
+        mRequestedPosition = positionMs;
+        if (slot == mRequestedSlot) {
+            return;
+        }
+        mRequestedSlot = slot;
+        final Bitmap thumbnail = mCache.acquire(ThumbnailCache.keyOf(mUri, slot));
+        if (thumbnail != null) {
+            mCallback.onThumbnail(positionMs, thumbnail);
+            return;
+        }
+        final Bitmap nearest = mCache.acquire(ThumbnailCache.keyOf(mUri,
+                slot - slot % PREFETCH_STRIDE));
+        if (nearest != null) {
+            mCallback.onThumbnail(positionMs, nearest);
+        }
+        final int generation = mGeneration;
+        final String uri = mUri;
+        final String dataSource = mDataSource;
+        final int slotInterval = mSlotInterval;
+        getHandler().postAtFrontOfQueue(new Runnable() {
+            @Override
+            public void run() {
+                if (extract(generation, uri, dataSource, slot, slotInterval)) {
+                    deliver(generation, slot);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop extracting the current video, cached thumbnails are kept.
+     */
+    public void close() {
+        mGeneration++;
+        mUri = null;
+        mDataSource = null;
+        mIsPrefetching = false;
+        mCallback = null;
+        mRequestedSlot = -1;
+        final int generation = mGeneration;
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                // A request of the next video may have opened it already.
+                if (mRetrieverGeneration < generation) {
+                    releaseRetriever();
+                }
+            }
+        });
+    }
+
+    private void deliver(final int generation, final int slot) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration || slot != mRequestedSlot) {
+                    return;
+                }
+                final Bitmap thumbnail = mCache.acquire(ThumbnailCache.keyOf(mUri, slot));
+                if (thumbnail != null) {
+                    mCallback.onThumbnail(mRequestedPosition, thumbnail);
+                }
+            }
+        });
+    }
+
+    /**
+     * Extract the thumbnail of a slot into the cache, runs on the extraction thread. The video
+     * is opened by whichever extraction comes first.
+     *
+     * @return true if the thumbnail is cached
+     */
+    private boolean extract(int generation, String uri, String dataSource, int slot,
+                            int slotInterval) {
+        if (generation != mGeneration) {
+            return false;
+        }
+        final String key = ThumbnailCache.keyOf(uri, slot);
+        if (mCache.get(key) != null) {
+            return true;
+        }
+        if (generation != mRetrieverGeneration) {
+            openRetriever(generation, uri, dataSource);
+        }
+        if (mRetriever == null) {
+            return false;
+        }
+        final Bitmap frame;
+        try {
+            frame = mRetriever.getFrameAtTime(slot * slotInterval * 1000L,
+                    MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "extract " + uri + " at slot " + slot + " failed", e);
+            return false;
+        }
+        if (frame == null || frame.getWidth() <= 0) {
+            return false;
+        }
+        final int width = mThumbnailWidth;
+        final int height = Math.max(1, width * frame.getHeight() / frame.getWidth());
+        Bitmap thumbnail = mCache.obtainReusable(width, height);
+        if (thumbnail == null) {
+            thumbnail = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        }
+        mDstRect.set(0, 0, width, height);
+        mCanvas.setBitmap(thumbnail);
+        mCanvas.drawBitmap(frame, null, mDstRect, mPaint);
+        mCanvas.setBitmap(null);
+        frame.recycle();
+        mCache.put(key, thumbnail);
+        return true;
+    }
+
+    private void openRetriever(int generation, String uri, String dataSource) {
+        releaseRetriever();
+        mRetrieverGeneration = generation;
+        mRetriever = new MediaMetadataRetriever();
+        try {
+            setDataSource(mRetriever, dataSource);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "open " + uri + " failed", e);
+            releaseRetriever();
+        }
+    }
+
+    /**
+     * Open a video in a retriever. Local files are passed as a descriptor, since the media
+     * server can not read the private files of the app by their path.
+     *
+     * @param dataSource a http uri, a file uri or the path of a local file
+     */
+    static void setDataSource(MediaMetadataRetriever retriever, String dataSource)
+            throws IOException {
+        final String path;
+        if (dataSource.startsWith("/")) {
+            path = dataSource;
+        } else if (dataSource.startsWith("file://")) {
+            path = Uri.parse(dataSource).getPath();
+        } else {
+            retriever.setDataSource(dataSource, new HashMap<String, String>());
+            return;
+        }
+        final FileInputStream in = new FileInputStream(path);
+        try {
+            retriever.setDataSource(in.getFD());
+        } finally {
+            in.close();
+        }
+    }
+
+    private void releaseRetriever() {
+        if (mRetriever != null) {
+            mRetriever.release();
+            mRetriever = null;
+        }
+    }
+}
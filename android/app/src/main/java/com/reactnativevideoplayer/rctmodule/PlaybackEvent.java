@@ -0,0 +1,49 @@
+package com.reactnativevideoplayer.rctmodule;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * A playback event of a video player sent to JavaScript, the high-frequency events of a view
+ * are coalesced by the event dispatcher, so at most one of them crosses the bridge per frame.
+ */
+
+final class PlaybackEvent extends Event<PlaybackEvent> {
+
+    static final String EVENT_LOAD = "onLoad";
+    static final String EVENT_PROGRESS = "onProgress";
+    static final String EVENT_BUFFER = "onBuffer";
+    static final String EVENT_END = "onEnd";
+    static final String EVENT_ERROR = "onError";
+    static final String EVENT_STATS = "onStats";
+
+    private final String mEventName;
+    private final WritableMap mPayload;
+
+    PlaybackEvent(int viewTag, String eventName, WritableMap payload) {
+        super(viewTag);
+        this.mEventName = eventName;
+        this.mPayload = payload;
+    }
+
+    @Override
+    public String getEventName() {
+        return mEventName;
+    }
+
+    @Override
+    public boolean canCoalesce() {
+        return EVENT_PROGRESS.equals(mEventName) || EVENT_BUFFER.equals(mEventName);
+    }
+
+    @Override
+    public short getCoalescingKey() {
+        return 0;
+    }
+
+    @Override
+    public void dispatch(RCTEventEmitter rctEventEmitter) {
+        rctEventEmitter.receiveEvent(getViewTag(), mEventName, mPayload);
+    }
+}
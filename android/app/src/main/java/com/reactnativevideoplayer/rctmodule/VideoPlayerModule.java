@@ -1,18 +1,50 @@
 package com.reactnativevideoplayer.rctmodule;
 
+import android.util.Log;
+import android.view.View;
+
 import com.facebook.react.ReactPackage;
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.JavaScriptModule;
 import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.common.MapBuilder;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.uimanager.IllegalViewOperationException;
+import com.facebook.react.uimanager.NativeViewHierarchyManager;
 import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.UIBlock;
+import com.facebook.react.uimanager.UIManagerModule;
 import com.facebook.react.uimanager.ViewManager;
 import com.facebook.react.uimanager.annotations.ReactProp;
+import com.facebook.react.uimanager.events.EventDispatcher;
+import com.reactnativevideoplayer.cache.Download;
+import com.reactnativevideoplayer.cache.DownloadManager;
+import com.reactnativevideoplayer.cache.PositionStore;
+import com.reactnativevideoplayer.cache.ThumbnailCache;
+import com.reactnativevideoplayer.cache.VideoCacheProxy;
+import com.reactnativevideoplayer.player.MediaPlayerPool;
+import com.reactnativevideoplayer.player.MediaPreloader;
+import com.reactnativevideoplayer.player.PlaybackEngine;
+import com.reactnativevideoplayer.player.Rendition;
+import com.reactnativevideoplayer.view.AutoplayCoordinator;
+import com.reactnativevideoplayer.view.DecoderBudget;
+import com.reactnativevideoplayer.view.PlaybackStats;
+import com.reactnativevideoplayer.view.RecoveryPolicy;
 import com.reactnativevideoplayer.view.VideoPlayer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -25,11 +57,16 @@ import javax.annotation.Nullable;
 
 public final class VideoPlayerModule {
 
+    private static final String ERROR_NO_PLAYER = "E_NO_PLAYER";
+
     public static final class RCTVideoPlaerPackage implements ReactPackage {
 
         @Override
         public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-            return Collections.emptyList();
+            return Arrays.<NativeModule>asList(
+                    new RCTVideoPlayerStatsModule(reactContext),
+                    new RCTVideoHandoffModule(reactContext),
+                    new RCTVideoDownloadModule(reactContext));
         }
 
         @Override
@@ -47,10 +84,109 @@ public final class VideoPlayerModule {
 
         private static final String PROPS_URI = "uri";
         private static final String PROPS_RESIZE_MODE = "resizeMode";
+        private static final String PROPS_RENDER_BACKEND = "renderBackend";
         private static final String PROPS_ENABLE_AUTO = "autoPlay";
+        private static final String PROPS_VISIBILITY_AUTO = "visibilityAutoPlay";
+        private static final String PROPS_COMPLETION_MODE = "completionMode";
+        private static final String PROPS_CONTROLS = "controls";
+        private static final String PROPS_LOOP = "loop";
+        private static final String PROPS_PRELOAD_URIS = "preloadUris";
+        private static final String PROPS_PLAYLIST = "playlist";
+        private static final String PROPS_RENDITIONS = "renditions";
+        private static final String PROPS_ENGINE = "engine";
+
+        private static final String ENGINE_MEDIA_PLAYER = "mediaplayer";
+        private static final String PROPS_PROGRESS_UPDATE_INTERVAL = "progressUpdateInterval";
+        private static final String PROPS_EVENT_INTERVAL = "eventInterval";
+        private static final String PROPS_SEEK_PREVIEW = "seekPreview";
+        private static final String PROPS_REMEMBER_POSITION = "rememberPosition";
+        private static final String PROPS_AUTO_RECOVER = "autoRecover";
+        private static final String PROPS_POSTER = "poster";
+        private static final String PROPS_POSTER_FIRST_FRAME = "posterFirstFrame";
 
         private static final int COMMAND_RECYCLE = 0;
         private static final int COMMAND_STOP = 1;
+        private static final int COMMAND_PRELOAD = 2;
+        private static final int COMMAND_NEXT = 3;
+        private static final int COMMAND_PREVIOUS = 4;
+
+        private static final int PRELOAD_COUNT = 2;
+        private static final int THUMBNAIL_CACHE_HEAP_SHARE = 32;
+        private static final int POSTER_CACHE_HEAP_SHARE = 32;
+
+        /**
+         * Players leased to all views created by this manager, the same pool views fall back to
+         * so there is a single cap of idle players in the process.
+         */
+        private static final MediaPlayerPool sPlayerPool = MediaPlayerPool.getDefault();
+
+        /**
+         * Videos prepared ahead for all views created by this manager.
+         */
+        private static final MediaPreloader sPreloader =
+                new MediaPreloader(sPlayerPool, PRELOAD_COUNT);
+
+        /**
+         * Decoders held by all views created by this manager, the same budget views fall back to
+         * so there is a single cap of decoders in the process.
+         */
+        private static final DecoderBudget sDecoderBudget = DecoderBudget.getDefault();
+
+        /**
+         * Seek preview thumbnails of all views created by this manager.
+         */
+        private static final ThumbnailCache sThumbnailCache =
+                ThumbnailCache.ofHeapShare(THUMBNAIL_CACHE_HEAP_SHARE);
+
+        /**
+         * Posters of all views created by this manager, kept apart so they do not evict the
+         * thumbnails being scrubbed through.
+         */
+        private static final ThumbnailCache sPosterCache =
+                ThumbnailCache.ofHeapShare(POSTER_CACHE_HEAP_SHARE);
+
+        /**
+         * Engines selectable by the engine prop besides the MediaPlayer engine.
+         */
+        private static final Map<String, PlaybackEngine.Factory> sEngineFactories =
+                new HashMap<>();
+
+        /**
+         * Make an engine selectable by the engine prop of the views, e.g. from the application
+         * before the first view is created.
+         *
+         * @param name    value of the engine prop selecting the engine
+         * @param factory creates the engine of a view
+         */
+        public static synchronized void registerEngine(String name,
+                                                       PlaybackEngine.Factory factory) {
+            if (ENGINE_MEDIA_PLAYER.equals(name)) {
+                throw new IllegalArgumentException(name + " is the built-in engine");
+            }
+            if (factory == null) {
+                throw new IllegalArgumentException("factory == null");
+            }
+            sEngineFactories.put(name, factory);
+        }
+
+        private static synchronized PlaybackEngine.Factory getEngineFactory(String name) {
+            return sEngineFactories.get(name);
+        }
+
+        public static MediaPlayerPool getPlayerPool() {
+            return sPlayerPool;
+        }
+
+        public static MediaPreloader getPreloader() {
+            return sPreloader;
+        }
+
+        /**
+         * The budget may be lowered on devices with few hardware decoders.
+         */
+        public static DecoderBudget getDecoderBudget() {
+            return sDecoderBudget;
+        }
 
         @Override
         public String getName() {
@@ -59,7 +195,41 @@ public final class VideoPlayerModule {
 
         @Override
         protected VideoPlayer createViewInstance(ThemedReactContext reactContext) {
-            return new VideoPlayer(reactContext);
+            final VideoCacheProxy cacheProxy = VideoCacheProxy.getInstance(reactContext);
+            sPreloader.setCacheProxy(cacheProxy);
+
+            final VideoPlayer player = new VideoPlayer(reactContext);
+            player.setPlayerPool(sPlayerPool);
+            player.setDecoderBudget(sDecoderBudget);
+            player.setPreloader(sPreloader);
+            player.setCacheProxy(cacheProxy);
+            player.setBandwidthMeter(cacheProxy.getBandwidthMeter());
+            player.setDownloadManager(DownloadManager.getInstance(reactContext));
+            player.setThumbnailCache(sThumbnailCache);
+            player.setPosterCache(sPosterCache);
+            return player;
+        }
+
+        @Override
+        protected void addEventEmitters(ThemedReactContext reactContext, VideoPlayer player) {
+            player.setOnPlaybackEventListener(new PlaybackEventEmitter(
+                    reactContext.getNativeModule(UIManagerModule.class).getEventDispatcher()));
+        }
+
+        @Nullable
+        @Override
+        public Map<String, Object> getExportedCustomDirectEventTypeConstants() {
+            return MapBuilder.<String, Object>of(
+                    PlaybackEvent.EVENT_LOAD, registrationOf(PlaybackEvent.EVENT_LOAD),
+                    PlaybackEvent.EVENT_PROGRESS, registrationOf(PlaybackEvent.EVENT_PROGRESS),
+                    PlaybackEvent.EVENT_BUFFER, registrationOf(PlaybackEvent.EVENT_BUFFER),
+                    PlaybackEvent.EVENT_END, registrationOf(PlaybackEvent.EVENT_END),
+                    PlaybackEvent.EVENT_ERROR, registrationOf(PlaybackEvent.EVENT_ERROR),
+                    PlaybackEvent.EVENT_STATS, registrationOf(PlaybackEvent.EVENT_STATS));
+        }
+
+        private static Map<String, String> registrationOf(String eventName) {
+            return MapBuilder.of("registrationName", eventName);
         }
 
         @ReactProp(name = PROPS_URI)
@@ -67,6 +237,25 @@ public final class VideoPlayerModule {
             player.setUrl(uri);
         }
 
+        @ReactProp(name = PROPS_RENDITIONS)
+        public void setRenditions(VideoPlayer player, @Nullable ReadableArray renditions) {
+            final List<Rendition> list = new ArrayList<>();
+            if (renditions != null) {
+                for (int i = 0; i < renditions.size(); i++) {
+                    final ReadableMap rendition = renditions.getMap(i);
+                    list.add(new Rendition(rendition.getString("uri"),
+                            (long) rendition.getDouble("bitrate"),
+                            getIntOrZero(rendition, "width"),
+                            getIntOrZero(rendition, "height")));
+                }
+            }
+            player.setRenditions(list);
+        }
+
+        private static int getIntOrZero(ReadableMap map, String key) {
+            return map.hasKey(key) && !map.isNull(key) ? map.getInt(key) : 0;
+        }
+
         @ReactProp(name = PROPS_RESIZE_MODE)
         public void setResizeMode(VideoPlayer player, String resizeMode) {
             if (resizeMode == null) {
@@ -81,6 +270,29 @@ public final class VideoPlayerModule {
             }
         }
 
+        @ReactProp(name = PROPS_RENDER_BACKEND)
+        public void setRenderBackend(VideoPlayer player, String renderBackend) {
+            if (renderBackend == null || renderBackend.equals("surface")) {
+                player.setRenderBackend(VideoPlayer.RENDER_BACKEND_SURFACE);
+            } else if (renderBackend.equals("texture")) {
+                player.setRenderBackend(VideoPlayer.RENDER_BACKEND_TEXTURE);
+            }
+        }
+
+        @ReactProp(name = PROPS_ENGINE)
+        public void setEngine(VideoPlayer player, @Nullable String engine) {
+            if (engine == null || engine.equals(ENGINE_MEDIA_PLAYER)) {
+                player.setEngineFactory(null);
+                return;
+            }
+            final PlaybackEngine.Factory factory = getEngineFactory(engine);
+            if (factory == null) {
+                Log.w(getName(), "engine " + engine + " is not registered");
+                return;
+            }
+            player.setEngineFactory(factory);
+        }
+
         @ReactProp(name = PROPS_ENABLE_AUTO)
         public void setAutoPlay(VideoPlayer player, boolean isEnable) {
             if (isEnable) {
@@ -88,11 +300,109 @@ public final class VideoPlayerModule {
             }
         }
 
+        @ReactProp(name = PROPS_VISIBILITY_AUTO)
+        public void setVisibilityAuto(VideoPlayer player, boolean isEnable) {
+            player.setAutoplayCoordinator(isEnable ? AutoplayCoordinator.getDefault() : null);
+        }
+
+        @ReactProp(name = PROPS_COMPLETION_MODE)
+        public void setCompletionMode(VideoPlayer player, String completionMode) {
+            if (completionMode == null || completionMode.equals("reset")) {
+                player.setCompletionMode(VideoPlayer.COMPLETION_MODE_RESET);
+            } else if (completionMode.equals("end")) {
+                player.setCompletionMode(VideoPlayer.COMPLETION_MODE_END);
+            } else if (completionMode.equals("start")) {
+                player.setCompletionMode(VideoPlayer.COMPLETION_MODE_START);
+            }
+        }
+
+        @ReactProp(name = PROPS_CONTROLS)
+        public void setControls(VideoPlayer player, String controls) {
+            if (controls == null || controls.equals("eager")) {
+                player.setControlsMode(VideoPlayer.CONTROLS_MODE_EAGER);
+            } else if (controls.equals("lazy")) {
+                player.setControlsMode(VideoPlayer.CONTROLS_MODE_LAZY);
+            } else if (controls.equals("none")) {
+                player.setControlsMode(VideoPlayer.CONTROLS_MODE_NONE);
+            }
+        }
+
+        @ReactProp(name = PROPS_LOOP)
+        public void setLoop(VideoPlayer player, boolean isLoop) {
+            player.setLooping(isLoop);
+        }
+
+        @ReactProp(name = PROPS_PROGRESS_UPDATE_INTERVAL,
+                defaultInt = VideoPlayer.DEFAULT_PROGRESS_UPDATE_INTERVAL)
+        public void setProgressUpdateInterval(VideoPlayer player, int intervalMs) {
+            player.setProgressUpdateInterval(intervalMs);
+        }
+
+        @ReactProp(name = PROPS_EVENT_INTERVAL,
+                defaultInt = VideoPlayer.DEFAULT_PLAYBACK_EVENT_INTERVAL)
+        public void setEventInterval(VideoPlayer player, int intervalMs) {
+            player.setPlaybackEventInterval(intervalMs);
+        }
+
+        @ReactProp(name = PROPS_SEEK_PREVIEW, defaultBoolean = true)
+        public void setSeekPreview(VideoPlayer player, boolean enabled) {
+            player.setThumbnailCache(enabled ? sThumbnailCache : null);
+        }
+
+        @ReactProp(name = PROPS_AUTO_RECOVER, defaultBoolean = true)
+        public void setAutoRecover(VideoPlayer player, boolean enabled) {
+            player.setRecoveryPolicy(enabled ? new RecoveryPolicy() : null);
+        }
+
+        @ReactProp(name = PROPS_POSTER)
+        public void setPoster(VideoPlayer player, @Nullable String poster) {
+            player.setPoster(poster);
+        }
+
+        @ReactProp(name = PROPS_POSTER_FIRST_FRAME)
+        public void setPosterFirstFrame(VideoPlayer player, boolean enabled) {
+            player.setFirstFramePoster(enabled);
+        }
+
+        @ReactProp(name = PROPS_REMEMBER_POSITION)
+        public void setRememberPosition(VideoPlayer player, boolean enabled) {
+            player.setPositionStore(enabled ?
+                    PositionStore.getInstance(player.getContext()) : null);
+        }
+
+        @ReactProp(name = PROPS_PLAYLIST)
+        public void setPlaylist(VideoPlayer player, @Nullable ReadableArray uris) {
+            final List<String> playlist = new ArrayList<>();
+            if (uris != null) {
+                for (int i = 0; i < uris.size(); i++) {
+                    playlist.add(uris.getString(i));
+                }
+            }
+            player.setPlaylist(playlist);
+        }
+
+        @ReactProp(name = PROPS_PRELOAD_URIS)
+        public void setPreloadUris(VideoPlayer player, @Nullable ReadableArray uris) {
+            preload(uris);
+        }
+
+        private static void preload(@Nullable ReadableArray uris) {
+            if (uris == null) {
+                return;
+            }
+            for (int i = 0; i < uris.size(); i++) {
+                sPreloader.preload(uris.getString(i));
+            }
+        }
+
         @Nullable
         @Override
         public Map<String, Integer> getCommandsMap() {
             return MapBuilder.of("recycle", COMMAND_RECYCLE,
-                    "stop", COMMAND_STOP);
+                    "stop", COMMAND_STOP,
+                    "preload", COMMAND_PRELOAD,
+                    "next", COMMAND_NEXT,
+                    "previous", COMMAND_PREVIOUS);
         }
 
         @Override
@@ -105,6 +415,15 @@ public final class VideoPlayerModule {
                 case COMMAND_STOP:
                     player.stop();
                     break;
+                case COMMAND_PRELOAD:
+                    preload(args);
+                    break;
+                case COMMAND_NEXT:
+                    player.next();
+                    break;
+                case COMMAND_PREVIOUS:
+                    player.previous();
+                    break;
                 default:
                     throw new IllegalArgumentException(String.format(Locale.US,
                             "Unsupported command %d received by %s.",
@@ -112,4 +431,304 @@ public final class VideoPlayerModule {
             }
         }
     }
+
+    /**
+     * Reads the playback stats of a player view from JavaScript.
+     */
+    public static final class RCTVideoPlayerStatsModule extends ReactContextBaseJavaModule {
+
+        public RCTVideoPlayerStatsModule(ReactApplicationContext reactContext) {
+            super(reactContext);
+        }
+
+        @Override
+        public String getName() {
+            return "VideoPlayerStats";
+        }
+
+        /**
+         * Resolve the stats of the current playback session of a player view.
+         *
+         * @param reactTag tag of the player view
+         * @param promise  resolved with the stats
+         */
+        @ReactMethod
+        public void getStats(final int reactTag, final Promise promise) {
+            final UIManagerModule uiManager =
+                    getReactApplicationContext().getNativeModule(UIManagerModule.class);
+            uiManager.addUIBlock(new UIBlock() {
+                @Override
+                public void execute(NativeViewHierarchyManager nativeViewHierarchyManager) {
+                    final VideoPlayer player =
+                            resolvePlayer(nativeViewHierarchyManager, reactTag, promise);
+                    if (player != null) {
+                        promise.resolve(statsToMap(player.getPlaybackStats()));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Hands a video over from one player view to another from JavaScript, e.g. to go fullscreen
+     * or to a detail page without opening the video again.
+     */
+    public static final class RCTVideoHandoffModule extends ReactContextBaseJavaModule {
+
+        public RCTVideoHandoffModule(ReactApplicationContext reactContext) {
+            super(reactContext);
+        }
+
+        @Override
+        public String getName() {
+            return "VideoPlayerHandoff";
+        }
+
+        /**
+         * Move the video of a player view with its engine to another one, see
+         * {@link VideoPlayer#takeOver}. Called once the target view is mounted and before the
+         * source view is unmounted.
+         *
+         * @param fromTag tag of the player view playing the video
+         * @param toTag   tag of the player view taking it over
+         * @param promise resolved with true if the engine moved, false if the source had no
+         *                video opened
+         */
+        @ReactMethod
+        public void handOff(final int fromTag, final int toTag, final Promise promise) {
+            final UIManagerModule uiManager =
+                    getReactApplicationContext().getNativeModule(UIManagerModule.class);
+            uiManager.addUIBlock(new UIBlock() {
+                @Override
+                public void execute(NativeViewHierarchyManager nativeViewHierarchyManager) {
+                    final VideoPlayer source =
+                            resolvePlayer(nativeViewHierarchyManager, fromTag, promise);
+                    if (source == null) {
+                        return;
+                    }
+                    final VideoPlayer target =
+                            resolvePlayer(nativeViewHierarchyManager, toTag, promise);
+                    if (target == null) {
+                        return;
+                    }
+                    if (source == target) {
+                        promise.resolve(false);
+                        return;
+                    }
+                    promise.resolve(target.takeOver(source));
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the player view of the tag, or null after rejecting the promise
+     */
+    private static VideoPlayer resolvePlayer(NativeViewHierarchyManager nativeViewHierarchyManager,
+                                             int reactTag, Promise promise) {
+        final View view;
+        try {
+            view = nativeViewHierarchyManager.resolveView(reactTag);
+        } catch (IllegalViewOperationException e) {
+            promise.reject(ERROR_NO_PLAYER, e);
+            return null;
+        }
+        if (!(view instanceof VideoPlayer)) {
+            promise.reject(ERROR_NO_PLAYER, "View " + reactTag + " is not a player");
+            return null;
+        }
+        return (VideoPlayer) view;
+    }
+
+    /**
+     * Saves videos for offline playback from JavaScript, the views play a saved video from its
+     * local copy. Progress and state changes are emitted as device events.
+     */
+    public static final class RCTVideoDownloadModule extends ReactContextBaseJavaModule
+            implements DownloadManager.Listener {
+
+        private static final String EVENT_PROGRESS = "VideoDownloadProgress";
+        private static final String EVENT_STATE = "VideoDownloadState";
+
+        private final DownloadManager mDownloadManager;
+
+        public RCTVideoDownloadModule(ReactApplicationContext reactContext) {
+            super(reactContext);
+            mDownloadManager = DownloadManager.getInstance(reactContext);
+        }
+
+        @Override
+        public String getName() {
+            return "VideoDownloader";
+        }
+
+        @Override
+        public void initialize() {
+            super.initialize();
+            mDownloadManager.addListener(this);
+        }
+
+        @Override
+        public void onCatalystInstanceDestroy() {
+            super.onCatalystInstanceDestroy();
+            mDownloadManager.removeListener(this);
+        }
+
+        /**
+         * Start saving a video, or resume it.
+         *
+         * @param uri     remote video uri
+         * @param promise resolved with the download
+         */
+        @ReactMethod
+        public void download(String uri, Promise promise) {
+            promise.resolve(downloadToMap(mDownloadManager.start(uri)));
+        }
+
+        @ReactMethod
+        public void pause(String uri) {
+            mDownloadManager.pause(uri);
+        }
+
+        @ReactMethod
+        public void remove(String uri, Promise promise) {
+            mDownloadManager.remove(uri);
+            promise.resolve(null);
+        }
+
+        /**
+         * @param promise resolved with all saved and saving videos
+         */
+        @ReactMethod
+        public void getDownloads(Promise promise) {
+            final WritableArray downloads = Arguments.createArray();
+            for (Download download : mDownloadManager.getDownloads()) {
+                downloads.pushMap(downloadToMap(download));
+            }
+            promise.resolve(downloads);
+        }
+
+        @Override
+        public void onProgress(Download download) {
+            emit(EVENT_PROGRESS, download);
+        }
+
+        @Override
+        public void onStateChanged(Download download) {
+            emit(EVENT_STATE, download);
+        }
+
+        private void emit(String eventName, Download download) {
+            final ReactApplicationContext reactContext = getReactApplicationContext();
+            if (reactContext.hasActiveCatalystInstance()) {
+                reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                        .emit(eventName, downloadToMap(download));
+            }
+        }
+    }
+
+    private static WritableMap downloadToMap(Download download) {
+        final WritableMap map = Arguments.createMap();
+        map.putString("uri", download.getUri());
+        map.putString("state", stateOf(download));
+        map.putDouble("downloadedBytes", download.getDownloadedBytes());
+        map.putDouble("totalBytes", download.getLength());
+        map.putString("error", download.getError());
+        return map;
+    }
+
+    private static String stateOf(Download download) {
+        switch (download.getState()) {
+            case Download.STATE_QUEUED:
+                return "queued";
+            case Download.STATE_RUNNING:
+                return "running";
+            case Download.STATE_COMPLETED:
+                return "completed";
+            case Download.STATE_FAILED:
+                return "failed";
+            case Download.STATE_REMOVED:
+                return "removed";
+            default:
+                return "paused";
+        }
+    }
+
+    private static WritableMap statsToMap(PlaybackStats stats) {
+        final WritableMap map = Arguments.createMap();
+        map.putString("uri", stats.getUri());
+        map.putInt("startupLatency", stats.getStartupLatency());
+        map.putInt("firstFrameLatency", stats.getFirstFrameLatency());
+        map.putInt("rebufferCount", stats.getRebufferCount());
+        map.putDouble("rebufferDuration", stats.getRebufferDuration());
+        map.putInt("seekCount", stats.getSeekCount());
+        map.putInt("meanSeekLatency", stats.getMeanSeekLatency());
+        map.putInt("maxSeekLatency", stats.getMaxSeekLatency());
+        map.putInt("laggingCount", stats.getLaggingCount());
+        map.putInt("errorCount", stats.getErrorCount());
+        map.putInt("lastErrorWhat", stats.getLastErrorWhat());
+        map.putInt("lastErrorExtra", stats.getLastErrorExtra());
+        map.putInt("recoveryCount", stats.getRecoveryCount());
+        return map;
+    }
+
+    /**
+     * Sends the playback events of a view to JavaScript through the event dispatcher.
+     */
+    private static final class PlaybackEventEmitter implements
+            VideoPlayer.OnPlaybackEventListener {
+
+        private final EventDispatcher mEventDispatcher;
+
+        private PlaybackEventEmitter(EventDispatcher eventDispatcher) {
+            this.mEventDispatcher = eventDispatcher;
+        }
+
+        @Override
+        public void onLoad(VideoPlayer player, int duration, int videoWidth, int videoHeight) {
+            final WritableMap payload = Arguments.createMap();
+            payload.putInt("duration", duration);
+            payload.putInt("videoWidth", videoWidth);
+            payload.putInt("videoHeight", videoHeight);
+            dispatch(player, PlaybackEvent.EVENT_LOAD, payload);
+        }
+
+        @Override
+        public void onProgress(VideoPlayer player, int currentPosition, int duration) {
+            final WritableMap payload = Arguments.createMap();
+            payload.putInt("currentPosition", currentPosition);
+            payload.putInt("duration", duration);
+            dispatch(player, PlaybackEvent.EVENT_PROGRESS, payload);
+        }
+
+        @Override
+        public void onBuffer(VideoPlayer player, boolean isBuffering, int bufferedPercent) {
+            final WritableMap payload = Arguments.createMap();
+            payload.putBoolean("isBuffering", isBuffering);
+            payload.putInt("bufferedPercent", bufferedPercent);
+            dispatch(player, PlaybackEvent.EVENT_BUFFER, payload);
+        }
+
+        @Override
+        public void onEnd(VideoPlayer player) {
+            dispatch(player, PlaybackEvent.EVENT_END, Arguments.createMap());
+        }
+
+        @Override
+        public void onError(VideoPlayer player, int what, int extra) {
+            final WritableMap payload = Arguments.createMap();
+            payload.putInt("what", what);
+            payload.putInt("extra", extra);
+            dispatch(player, PlaybackEvent.EVENT_ERROR, payload);
+        }
+
+        @Override
+        public void onStats(VideoPlayer player, PlaybackStats stats) {
+            dispatch(player, PlaybackEvent.EVENT_STATS, statsToMap(stats));
+        }
+
+        private void dispatch(VideoPlayer player, String eventName, WritableMap payload) {
+            mEventDispatcher.dispatchEvent(new PlaybackEvent(player.getId(), eventName, payload));
+        }
+    }
 }
@@ -0,0 +1,255 @@
+package com.reactnativevideoplayer.view;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Lets only the most visible players of a scrolling feed play. Players are ranked by the
+ * fraction of them visible on screen, the first ones above the play fraction may play and the
+ * others are paused. Players far enough offscreen release their decoders, they open the video
+ * again at the same position when they come back.
+ * <p>
+ * All methods must be called on the main thread.
+ */
+
+public final class AutoplayCoordinator {
+
+    /**
+     * Default min visible fraction of a player to play.
+     */
+    public static final float DEFAULT_PLAY_FRACTION = 0.5f;
+
+    /**
+     * Default distance offscreen at which a player releases its decoder, in screen sizes.
+     */
+    public static final float DEFAULT_RELEASE_DISTANCE = 1f;
+
+    /**
+     * Min interval between two visibility updates, scrolls in between are coalesced.
+     */
+    private static final int UPDATE_DELAY = 100;
+
+    private static AutoplayCoordinator sDefault;
+
+    private static final class Entry {
+
+        final VideoPlayer mPlayer;
+
+        /**
+         * Observer of the window the player was attached to when registered.
+         */
+        final ViewTreeObserver mObserver;
+        float mVisibleFraction;
+        boolean mIsAllowed;
+
+        Entry(VideoPlayer player, ViewTreeObserver observer) {
+            this.mPlayer = player;
+            this.mObserver = observer;
+        }
+    }
+
+    private static final Comparator<Entry> BY_VISIBLE_FRACTION = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry lhs, Entry rhs) {
+            return Float.compare(rhs.mVisibleFraction, lhs.mVisibleFraction);
+        }
+    };
+
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private final ArrayList<Entry> mRanked = new ArrayList<>();
+
+    /**
+     * Count of registered players per window observer, the listeners are added to each observer
+     * once.
+     */
+    private final HashMap<ViewTreeObserver, Integer> mObserverCounts = new HashMap<>();
+    private final Rect mVisibleRect = new Rect();
+    private final int[] mLocation = new int[2];
+    private final int[] mRootLocation = new int[2];
+    private int mMaxPlaying = 1;
+    private float mPlayFraction = DEFAULT_PLAY_FRACTION;
+    private float mReleaseDistance = DEFAULT_RELEASE_DISTANCE;
+    private UiScheduler.Token mUpdateToken;
+
+    private final Runnable mUpdateTask = new Runnable() {
+        @Override
+        public void run() {
+            mUpdateToken = null;
+            update();
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    scheduleUpdate();
+                }
+            };
+
+    private final ViewTreeObserver.OnGlobalLayoutListener mOnGlobalLayoutListener =
+            new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    scheduleUpdate();
+                }
+            };
+
+    /**
+     * @return coordinator shared by the players of the app
+     */
+    public static synchronized AutoplayCoordinator getDefault() {
+        if (sDefault == null) {
+            sDefault = new AutoplayCoordinator();
+        }
+        return sDefault;
+    }
+
+    /**
+     * Set how many players may play at once
+     *
+     * @param maxPlaying max count of playing players
+     */
+    public void setMaxPlaying(int maxPlaying) {
+        if (maxPlaying <= 0) {
+            throw new IllegalArgumentException("maxPlaying <= 0");
+        }
+        this.mMaxPlaying = maxPlaying;
+        scheduleUpdate();
+    }
+
+    /**
+     * Set the min visible fraction of a player to play
+     *
+     * @param playFraction fraction in (0, 1]
+     */
+    public void setPlayFraction(float playFraction) {
+        if (playFraction <= 0 || playFraction > 1) {
+            throw new IllegalArgumentException("playFraction not in (0, 1]");
+        }
+        this.mPlayFraction = playFraction;
+        scheduleUpdate();
+    }
+
+    /**
+     * Set how far offscreen a player releases its decoder
+     *
+     * @param releaseDistance distance in screen sizes along the offscreen axis
+     */
+    public void setReleaseDistance(float releaseDistance) {
+        if (releaseDistance < 0) {
+            throw new IllegalArgumentException("releaseDistance < 0");
+        }
+        this.mReleaseDistance = releaseDistance;
+        scheduleUpdate();
+    }
+
+    /**
+     * Start tracking an attached player, it does not autoplay until it is ranked.
+     */
+    void register(VideoPlayer player) {
+        if (indexOf(player) >= 0) {
+            return;
+        }
+        final ViewTreeObserver observer = player.getViewTreeObserver();
+        mEntries.add(new Entry(player, observer));
+        player.setAutoplayAllowed(false);
+        final Integer count = mObserverCounts.get(observer);
+        if (count == null) {
+            observer.addOnScrollChangedListener(mOnScrollChangedListener);
+            observer.addOnGlobalLayoutListener(mOnGlobalLayoutListener);
+        }
+        mObserverCounts.put(observer, count == null ? 1 : count + 1);
+        scheduleUpdate();
+    }
+
+    void unregister(VideoPlayer player) {
+        final int index = indexOf(player);
+        if (index < 0) {
+            return;
+        }
+        final ViewTreeObserver observer = mEntries.remove(index).mObserver;
+        final Integer count = mObserverCounts.get(observer);
+        if (count != null && count > 1) {
+            mObserverCounts.put(observer, count - 1);
+        } else {
+            mObserverCounts.remove(observer);
+            if (observer.isAlive()) {
+                observer.removeOnScrollChangedListener(mOnScrollChangedListener);
+                observer.removeOnGlobalLayoutListener(mOnGlobalLayoutListener);
+            }
+        }
+        if (mEntries.isEmpty() && mUpdateToken != null) {
+            mUpdateToken.cancel();
+            mUpdateToken = null;
+        } else {
+            scheduleUpdate();
+        }
+    }
+
+    private int indexOf(VideoPlayer player) {
+        for (int i = 0; i < mEntries.size(); i++) {
+            if (mEntries.get(i).mPlayer == player) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void scheduleUpdate() {
+        if (mUpdateToken == null && !mEntries.isEmpty()) {
+            mUpdateToken = UiScheduler.getInstance().schedule(mUpdateTask, UPDATE_DELAY);
+        }
+    }
+
+    private void update() {
+        mRanked.clear();
+        for (Entry entry : mEntries) {
+            entry.mVisibleFraction = getVisibleFraction(entry.mPlayer);
+            mRanked.add(entry);
+        }
+        Collections.sort(mRanked, BY_VISIBLE_FRACTION);
+        int playingCount = 0;
+        for (Entry entry : mRanked) {
+            final boolean isAllowed = playingCount < mMaxPlaying &&
+                    entry.mVisibleFraction >= mPlayFraction;
+            if (isAllowed) {
+                playingCount++;
+            }
+            if (isAllowed != entry.mIsAllowed) {
+                entry.mIsAllowed = isAllowed;
+                entry.mPlayer.setAutoplayAllowed(isAllowed);
+            }
+            if (!isAllowed && entry.mVisibleFraction == 0 && isFarOffscreen(entry.mPlayer)) {
+                entry.mPlayer.releaseDecoder();
+            }
+        }
+        mRanked.clear();
+    }
+
+    private float getVisibleFraction(VideoPlayer player) {
+        final long area = (long) player.getWidth() * player.getHeight();
+        if (area == 0 || player.getWindowVisibility() != View.VISIBLE || !player.isShown() ||
+                !player.getGlobalVisibleRect(mVisibleRect)) {
+            return 0;
+        }
+        return (float) ((long) mVisibleRect.width() * mVisibleRect.height()) / area;
+    }
+
+    private boolean isFarOffscreen(VideoPlayer player) {
+        final View root = player.getRootView();
+        player.getLocationOnScreen(mLocation);
+        root.getLocationOnScreen(mRootLocation);
+        final int dx = Math.max(mRootLocation[0] - (mLocation[0] + player.getWidth()),
+                mLocation[0] - (mRootLocation[0] + root.getWidth()));
+        final int dy = Math.max(mRootLocation[1] - (mLocation[1] + player.getHeight()),
+                mLocation[1] - (mRootLocation[1] + root.getHeight()));
+        return dx > mReleaseDistance * root.getWidth() || dy > mReleaseDistance * root.getHeight();
+    }
+}
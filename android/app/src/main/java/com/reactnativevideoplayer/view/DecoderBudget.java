@@ -0,0 +1,106 @@
+package com.reactnativevideoplayer.view;
+
+import java.util.ArrayList;
+
+/**
+ * Limits how many players hold a decoder at once. A player opening a video over the budget
+ * makes the least recently used players which are not playing release their decoders, they
+ * open their video again at the same position when they play next.
+ * <p>
+ * Players which are playing or preparing are never evicted, the budget may be exceeded while
+ * all of them are busy. All methods must be called on the main thread.
+ */
+
+public final class DecoderBudget {
+
+    /**
+     * Default max count of players holding a decoder.
+     */
+    public static final int DEFAULT_MAX_DECODERS = 4;
+
+    private static DecoderBudget sDefault;
+
+    /**
+     * Players holding a decoder, the least recently used first.
+     */
+    private final ArrayList<VideoPlayer> mHolders = new ArrayList<>();
+
+    private int mMaxDecoders;
+
+    public DecoderBudget(int maxDecoders) {
+        if (maxDecoders <= 0) {
+            throw new IllegalArgumentException("maxDecoders <= 0");
+        }
+        this.mMaxDecoders = maxDecoders;
+    }
+
+    /**
+     * The budget shared by all players which are not given a budget explicitly.
+     */
+    public static synchronized DecoderBudget getDefault() {
+        if (sDefault == null) {
+            sDefault = new DecoderBudget(DEFAULT_MAX_DECODERS);
+        }
+        return sDefault;
+    }
+
+    /**
+     * Set the max count of players holding a decoder, idle players over the new budget release
+     * their decoders
+     *
+     * @param maxDecoders target count
+     */
+    public void setMaxDecoders(int maxDecoders) {
+        if (maxDecoders <= 0) {
+            throw new IllegalArgumentException("maxDecoders <= 0");
+        }
+        this.mMaxDecoders = maxDecoders;
+        trim(null);
+    }
+
+    public int getMaxDecoders() {
+        return mMaxDecoders;
+    }
+
+    /**
+     * @return count of players holding a decoder
+     */
+    public int getHolderCount() {
+        return mHolders.size();
+    }
+
+    /**
+     * Called when a player opens a video, other players are evicted if it exceeds the budget.
+     */
+    void acquire(VideoPlayer player) {
+        mHolders.remove(player);
+        mHolders.add(player);
+        trim(player);
+    }
+
+    /**
+     * Called when a player plays, it becomes the most recently used.
+     */
+    void touch(VideoPlayer player) {
+        if (mHolders.remove(player)) {
+            mHolders.add(player);
+        }
+    }
+
+    void release(VideoPlayer player) {
+        mHolders.remove(player);
+    }
+
+    private void trim(VideoPlayer keep) {
+        int i = 0;
+        while (mHolders.size() > mMaxDecoders && i < mHolders.size()) {
+            final VideoPlayer holder = mHolders.get(i);
+            if (holder != keep && holder.hasIdleDecoder()) {
+                holder.releaseDecoder();
+                mHolders.remove(holder);
+            } else {
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.reactnativevideoplayer.view;
+
+import com.reactnativevideoplayer.player.PlaybackEngine;
+
+/**
+ * Passes the callbacks of an engine on to the view playing with it. The engine keeps its relay
+ * for life, so it moves to another view by retargeting the relay.
+ * <p>
+ * Only accessed on the main thread.
+ */
+
+final class EngineCallbackRelay implements PlaybackEngine.Callback {
+
+    private VideoPlayer mTarget;
+
+    EngineCallbackRelay(VideoPlayer target) {
+        this.mTarget = target;
+    }
+
+    void setTarget(VideoPlayer target) {
+        this.mTarget = target;
+    }
+
+    @Override
+    public void onPrepared(PlaybackEngine engine) {
+        mTarget.onPrepared(engine);
+    }
+
+    @Override
+    public void onCompletion(PlaybackEngine engine) {
+        mTarget.onCompletion(engine);
+    }
+
+    @Override
+    public void onBufferingUpdate(PlaybackEngine engine, int percent) {
+        mTarget.onBufferingUpdate(engine, percent);
+    }
+
+    @Override
+    public void onInfo(PlaybackEngine engine, int what, int extra) {
+        mTarget.onInfo(engine, what, extra);
+    }
+
+    @Override
+    public void onSeekComplete(PlaybackEngine engine) {
+        mTarget.onSeekComplete(engine);
+    }
+
+    @Override
+    public void onTransition(PlaybackEngine engine) {
+        mTarget.onTransition(engine);
+    }
+
+    @Override
+    public void onError(PlaybackEngine engine, int what, int extra) {
+        mTarget.onError(engine, what, extra);
+    }
+}
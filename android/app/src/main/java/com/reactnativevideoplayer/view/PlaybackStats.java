@@ -0,0 +1,226 @@
+package com.reactnativevideoplayer.view;
+
+import android.os.SystemClock;
+
+/**
+ * Quality counters of one playback session of a {@link VideoPlayer}, a session starts when a
+ * new video is prepared. The counters are plain fields reset in place, recording never
+ * allocates.
+ * <p>
+ * All times are in milliseconds, a latency which is not known yet is -1. Only accessed on the
+ * main thread.
+ */
+
+public final class PlaybackStats {
+
+    private String mUri;
+    private long mSessionStartTime;
+    private int mStartupLatency;
+    private int mFirstFrameLatency;
+    private int mRebufferCount;
+    private long mRebufferStartTime;
+    private long mRebufferDuration;
+    private int mSeekCount;
+    private long mSeekStartTime;
+    private long mSeekLatencyTotal;
+    private int mMaxSeekLatency;
+    private int mLaggingCount;
+    private int mErrorCount;
+    private int mLastErrorWhat;
+    private int mLastErrorExtra;
+    private int mRecoveryCount;
+
+    PlaybackStats() {
+        reset(null);
+    }
+
+    void reset(String uri) {
+        mUri = uri;
+        mSessionStartTime = uri == null ? 0 : SystemClock.uptimeMillis();
+        mStartupLatency = -1;
+        mFirstFrameLatency = -1;
+        mRebufferCount = 0;
+        mRebufferStartTime = 0;
+        mRebufferDuration = 0;
+        mSeekCount = 0;
+        mSeekStartTime = 0;
+        mSeekLatencyTotal = 0;
+        mMaxSeekLatency = 0;
+        mLaggingCount = 0;
+        mErrorCount = 0;
+        mLastErrorWhat = 0;
+        mLastErrorExtra = 0;
+        mRecoveryCount = 0;
+    }
+
+    /**
+     * Continue the session of another view, e.g. when its video was handed over to this one.
+     * The other stats are reset.
+     */
+    void moveFrom(PlaybackStats other) {
+        mUri = other.mUri;
+        mSessionStartTime = other.mSessionStartTime;
+        mStartupLatency = other.mStartupLatency;
+        mFirstFrameLatency = other.mFirstFrameLatency;
+        mRebufferCount = other.mRebufferCount;
+        mRebufferStartTime = other.mRebufferStartTime;
+        mRebufferDuration = other.mRebufferDuration;
+        mSeekCount = other.mSeekCount;
+        mSeekStartTime = other.mSeekStartTime;
+        mSeekLatencyTotal = other.mSeekLatencyTotal;
+        mMaxSeekLatency = other.mMaxSeekLatency;
+        mLaggingCount = other.mLaggingCount;
+        mErrorCount = other.mErrorCount;
+        mLastErrorWhat = other.mLastErrorWhat;
+        mLastErrorExtra = other.mLastErrorExtra;
+        mRecoveryCount = other.mRecoveryCount;
+        other.reset(null);
+    }
+
+    boolean isStarted() {
+        return mSessionStartTime != 0;
+    }
+
+    void markPrepared() {
+        if (isStarted() && mStartupLatency < 0) {
+            mStartupLatency = (int) (SystemClock.uptimeMillis() - mSessionStartTime);
+        }
+    }
+
+    void markFirstFrame() {
+        if (isStarted() && mFirstFrameLatency < 0) {
+            mFirstFrameLatency = (int) (SystemClock.uptimeMillis() - mSessionStartTime);
+        }
+    }
+
+    /**
+     * Buffering before the video is prepared is part of the startup, it is not counted as a
+     * rebuffer.
+     */
+    void markBufferingStart() {
+        if (mStartupLatency < 0 || mRebufferStartTime != 0) {
+            return;
+        }
+        mRebufferCount++;
+        mRebufferStartTime = SystemClock.uptimeMillis();
+    }
+
+    void markBufferingEnd() {
+        if (mRebufferStartTime == 0) {
+            return;
+        }
+        mRebufferDuration += SystemClock.uptimeMillis() - mRebufferStartTime;
+        mRebufferStartTime = 0;
+    }
+
+    /**
+     * A seek issued before the previous one completed replaces it, the latency is measured
+     * from the first of them.
+     */
+    void markSeekStart() {
+        if (mSeekStartTime == 0) {
+            mSeekStartTime = SystemClock.uptimeMillis();
+        }
+    }
+
+    void markSeekComplete() {
+        if (mSeekStartTime == 0) {
+            return;
+        }
+        final int latency = (int) (SystemClock.uptimeMillis() - mSeekStartTime);
+        mSeekStartTime = 0;
+        mSeekCount++;
+        mSeekLatencyTotal += latency;
+        mMaxSeekLatency = Math.max(mMaxSeekLatency, latency);
+    }
+
+    void markLagging() {
+        mLaggingCount++;
+    }
+
+    void markError(int what, int extra) {
+        mErrorCount++;
+        mLastErrorWhat = what;
+        mLastErrorExtra = extra;
+    }
+
+    void markRecovery() {
+        mRecoveryCount++;
+    }
+
+    /**
+     * @return uri of the video played in this session, null if no session started
+     */
+    public String getUri() {
+        return mUri;
+    }
+
+    /**
+     * @return time from opening the video until it was prepared
+     */
+    public int getStartupLatency() {
+        return mStartupLatency;
+    }
+
+    /**
+     * @return time from opening the video until its first frame was rendered
+     */
+    public int getFirstFrameLatency() {
+        return mFirstFrameLatency;
+    }
+
+    public int getRebufferCount() {
+        return mRebufferCount;
+    }
+
+    /**
+     * @return total time spent rebuffering, including a rebuffer still in progress
+     */
+    public long getRebufferDuration() {
+        if (mRebufferStartTime == 0) {
+            return mRebufferDuration;
+        }
+        return mRebufferDuration + SystemClock.uptimeMillis() - mRebufferStartTime;
+    }
+
+    public int getSeekCount() {
+        return mSeekCount;
+    }
+
+    /**
+     * @return mean latency of the completed seeks, 0 if there was none
+     */
+    public int getMeanSeekLatency() {
+        return mSeekCount == 0 ? 0 : (int) (mSeekLatencyTotal / mSeekCount);
+    }
+
+    public int getMaxSeekLatency() {
+        return mMaxSeekLatency;
+    }
+
+    /**
+     * @return times the decoder reported it could not keep up and dropped frames
+     */
+    public int getLaggingCount() {
+        return mLaggingCount;
+    }
+
+    public int getErrorCount() {
+        return mErrorCount;
+    }
+
+    public int getLastErrorWhat() {
+        return mLastErrorWhat;
+    }
+
+    public int getLastErrorExtra() {
+        return mLastErrorExtra;
+    }
+
+    /**
+     * @return count of times the video was opened again after a failure or a stall
+     */
+    public int getRecoveryCount() {
+        return mRecoveryCount;
+    }
+}
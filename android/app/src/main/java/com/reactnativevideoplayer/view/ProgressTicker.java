@@ -0,0 +1,112 @@
+package com.reactnativevideoplayer.view;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * One frame-aligned ticker shared by all playing players, each listener is ticked at its own
+ * interval. The ticker only runs while there are listeners.
+ * <p>
+ * All methods must be called on the main thread.
+ */
+
+public final class ProgressTicker implements Choreographer.FrameCallback {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static ProgressTicker sInstance;
+
+    private final ArrayList<Registration> mRegistrations = new ArrayList<>();
+
+    private boolean mIsRunning = false;
+    private boolean mHasRemoved = false;
+
+    public interface OnTickListener {
+
+        /**
+         * Called on a frame when the interval of the listener elapsed.
+         */
+        void onTick();
+    }
+
+    private static final class Registration {
+        OnTickListener mListener;
+        long mIntervalNanos;
+        long mLastTickNanos;
+    }
+
+    private ProgressTicker() {
+    }
+
+    public static ProgressTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new ProgressTicker();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Tick a listener on the next frame and then every interval, registering a listener again
+     * only updates its interval.
+     *
+     * @param listener   target listener
+     * @param intervalMs min interval between ticks
+     */
+    public void register(OnTickListener listener, int intervalMs) {
+        Registration registration = find(listener);
+        if (registration == null) {
+            registration = new Registration();
+            registration.mListener = listener;
+            mRegistrations.add(registration);
+        }
+        registration.mIntervalNanos = intervalMs * NANOS_PER_MILLI;
+        if (!mIsRunning) {
+            mIsRunning = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public void unregister(OnTickListener listener) {
+        final Registration registration = find(listener);
+        if (registration != null) {
+            registration.mListener = null;
+            mHasRemoved = true;
+        }
+    }
+
+    private Registration find(OnTickListener listener) {
+        for (int i = 0, size = mRegistrations.size(); i < size; i++) {
+            final Registration registration = mRegistrations.get(i);
+            if (registration.mListener == listener) {
+                return registration;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        for (int i = 0, size = mRegistrations.size(); i < size; i++) {
+            final Registration registration = mRegistrations.get(i);
+            if (registration.mListener != null &&
+                    frameTimeNanos - registration.mLastTickNanos >= registration.mIntervalNanos) {
+                registration.mLastTickNanos = frameTimeNanos;
+                registration.mListener.onTick();
+            }
+        }
+        if (mHasRemoved) {
+            for (int i = mRegistrations.size() - 1; i >= 0; i--) {
+                if (mRegistrations.get(i).mListener == null) {
+                    mRegistrations.remove(i);
+                }
+            }
+            mHasRemoved = false;
+        }
+        if (mRegistrations.isEmpty()) {
+            mIsRunning = false;
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
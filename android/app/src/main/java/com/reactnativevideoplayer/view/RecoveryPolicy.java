@@ -0,0 +1,96 @@
+package com.reactnativevideoplayer.view;
+
+import android.media.MediaPlayer;
+
+/**
+ * Decides whether a failed or stalled video is opened again and after how long. Transient
+ * failures are retried with an exponential backoff, the retries start over once the video
+ * plays again.
+ * <p>
+ * Each view needs its own policy.
+ */
+
+public final class RecoveryPolicy {
+
+    public static final int DEFAULT_MAX_RETRIES = 5;
+    public static final int DEFAULT_BASE_DELAY = 1000;
+    public static final int DEFAULT_MAX_DELAY = 16000;
+
+    /**
+     * Error extra of a failure reported by the system without detail, mostly a lost
+     * connection.
+     */
+    private static final int MEDIA_ERROR_SYSTEM = Integer.MIN_VALUE;
+
+    private final int mMaxRetries;
+    private final int mBaseDelay;
+    private final int mMaxDelay;
+    private int mRetryCount;
+
+    public RecoveryPolicy() {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * @param maxRetries max count of retries in a row
+     * @param baseDelay  delay before the first retry, doubled for each next one
+     * @param maxDelay   max delay before a retry
+     */
+    public RecoveryPolicy(int maxRetries, int baseDelay, int maxDelay) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries < 0");
+        }
+        if (baseDelay <= 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("delays not in 0 < baseDelay <= maxDelay");
+        }
+        this.mMaxRetries = maxRetries;
+        this.mBaseDelay = baseDelay;
+        this.mMaxDelay = maxDelay;
+    }
+
+    /**
+     * Whether an error may go away by opening the video again, e.g. a network failure, as
+     * opposed to a video which can not be played at all.
+     *
+     * @param what  error code of {@link MediaPlayer}
+     * @param extra error extra of {@link MediaPlayer}
+     */
+    public static boolean isTransient(int what, int extra) {
+        if (what == MediaPlayer.MEDIA_ERROR_SERVER_DIED) {
+            return true;
+        }
+        switch (extra) {
+            case MediaPlayer.MEDIA_ERROR_IO:
+            case MediaPlayer.MEDIA_ERROR_TIMED_OUT:
+            case MEDIA_ERROR_SYSTEM:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Count a retry of a transient failure.
+     *
+     * @return delay before the retry in milliseconds, or -1 to give up
+     */
+    public int nextDelay() {
+        if (mRetryCount >= mMaxRetries) {
+            return -1;
+        }
+        final int shift = Math.min(mRetryCount, 30);
+        mRetryCount++;
+        return (int) Math.min((long) mBaseDelay << shift, mMaxDelay);
+    }
+
+    /**
+     * Start the retries over, called when the video plays again or another one is opened.
+     */
+    public void reset() {
+        mRetryCount = 0;
+    }
+
+    public int getRetryCount() {
+        return mRetryCount;
+    }
+}
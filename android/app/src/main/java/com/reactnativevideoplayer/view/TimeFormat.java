@@ -0,0 +1,71 @@
+package com.reactnativevideoplayer.view;
+
+/**
+ * Formats the play time shown by the control bar of {@link VideoPlayer}, kept free of Android
+ * classes so it can be measured on a plain JVM.
+ * <p>
+ * The time is written into a caller owned buffer, which can be handed to
+ * {@link android.widget.TextView#setText(char[], int, int)}, so formatting on every tick or
+ * scrub step does not allocate.
+ */
+
+final class TimeFormat {
+
+    /**
+     * Length of a buffer large enough for any time, the hours of {@link Integer#MAX_VALUE}
+     * milliseconds take 3 digits.
+     */
+    static final int BUFFER_LENGTH = 9;
+
+    private static final int MILLIS_PER_HOUR = 60 * 60 * 1000;
+
+    private TimeFormat() {
+    }
+
+    /**
+     * @param milliseconds time of the media
+     * @return true if times of media of this duration are shown with hours
+     */
+    static boolean needsHours(int milliseconds) {
+        return milliseconds >= MILLIS_PER_HOUR;
+    }
+
+    /**
+     * Write a time as {@code mm:ss}, or as {@code h:mm:ss} when it has hours or showHours is
+     * set. Negative times are written as 0.
+     *
+     * @param milliseconds target time
+     * @param showHours    true to write the hours even if they are 0
+     * @param out          receives the time, at least {@link #BUFFER_LENGTH} long
+     * @return count of chars written
+     */
+    static int format(int milliseconds, boolean showHours, char[] out) {
+        final int totalSeconds = Math.max(milliseconds, 0) / 1000;
+        final int hours = totalSeconds / 3600;
+        final int minutes = totalSeconds / 60 % 60;
+        final int seconds = totalSeconds % 60;
+        int length = 0;
+        if (hours > 0 || showHours) {
+            length = writeInt(hours, out, length);
+            out[length++] = ':';
+        }
+        out[length++] = (char) ('0' + minutes / 10);
+        out[length++] = (char) ('0' + minutes % 10);
+        out[length++] = ':';
+        out[length++] = (char) ('0' + seconds / 10);
+        out[length++] = (char) ('0' + seconds % 10);
+        return length;
+    }
+
+    private static int writeInt(int value, char[] out, int offset) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
@@ -0,0 +1,76 @@
+package com.reactnativevideoplayer.view;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Runs delayed UI work of all players on the main looper, without starting any thread.
+ * Every scheduled task returns a token which cancels it.
+ */
+
+public final class UiScheduler {
+
+    private static UiScheduler sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * A scheduled task, runs at most once.
+     */
+    public static final class Token implements Runnable {
+
+        private final Handler mHandler;
+        private Runnable mTask;
+
+        private Token(Handler handler, Runnable task) {
+            this.mHandler = handler;
+            this.mTask = task;
+        }
+
+        /**
+         * Cancel the task if it did not run yet, calling it more than once is harmless.
+         */
+        public void cancel() {
+            if (mTask != null) {
+                mHandler.removeCallbacks(this);
+                mTask = null;
+            }
+        }
+
+        public boolean isPending() {
+            return mTask != null;
+        }
+
+        @Override
+        public void run() {
+            final Runnable target = mTask;
+            mTask = null;
+            if (target != null) {
+                target.run();
+            }
+        }
+    }
+
+    private UiScheduler() {
+    }
+
+    public static synchronized UiScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new UiScheduler();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Run a task on the main thread after a delay.
+     *
+     * @param task    target task
+     * @param delayMs delay in milliseconds
+     * @return token of the scheduled task
+     */
+    public Token schedule(Runnable task, long delayMs) {
+        final Token token = new Token(mHandler, task);
+        mHandler.postDelayed(token, delayMs);
+        return token;
+    }
+}
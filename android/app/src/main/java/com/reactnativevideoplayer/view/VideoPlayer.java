@@ -3,16 +3,21 @@ package com.reactnativevideoplayer.view;
 import android.animation.Animator;
 import android.animation.ValueAnimator;
 import android.content.Context;
-import android.media.AudioManager;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
 import android.media.MediaPlayer;
-import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.util.Pair;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
+import android.view.Surface;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
+import android.view.TextureView;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
@@ -22,20 +27,32 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.reactnativevideoplayer.R;
-
-import java.io.IOException;
-import java.util.Timer;
-import java.util.TimerTask;
+import com.reactnativevideoplayer.cache.BandwidthMeter;
+import com.reactnativevideoplayer.cache.DownloadManager;
+import com.reactnativevideoplayer.cache.PositionStore;
+import com.reactnativevideoplayer.cache.ThumbnailCache;
+import com.reactnativevideoplayer.cache.VideoCacheProxy;
+import com.reactnativevideoplayer.player.MediaPlayerPool;
+import com.reactnativevideoplayer.player.MediaPreloader;
+import com.reactnativevideoplayer.player.PlaybackEngine;
+import com.reactnativevideoplayer.player.PlayerController;
+import com.reactnativevideoplayer.player.PosterLoader;
+import com.reactnativevideoplayer.player.Rendition;
+import com.reactnativevideoplayer.player.ThumbnailExtractor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * A simple video player, wrapped {@link MediaPlayer}.
+ * A simple video player, wrapped {@link android.media.MediaPlayer}.
  * Created by runing on 2016/11/11.
  */
 
 public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
-        MediaPlayer.OnCompletionListener, MediaPlayer.OnBufferingUpdateListener,
-        MediaPlayer.OnErrorListener, MediaPlayer.OnPreparedListener, View.OnClickListener {
+        TextureView.SurfaceTextureListener, PlaybackEngine.Callback, View.OnClickListener,
+        ProgressTicker.OnTickListener {
 
     private static final AtomicInteger sNextGeneratedId = new AtomicInteger(10000);
 
@@ -56,9 +73,97 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
      */
     public static final int RESIZE_MODE_COVER = 2;
 
+    /**
+     * Default backend, the video is rendered into a {@link SurfaceView}, resize modes relayout it.
+     */
+    public static final int RENDER_BACKEND_SURFACE = 0;
+
+    /**
+     * The video is rendered into a {@link TextureView}, which can be animated and clipped,
+     * resize modes are applied as a transform.
+     */
+    public static final int RENDER_BACKEND_TEXTURE = 1;
+
+    /**
+     * Default mode, the player is stopped when the video completes, and prepared again on replay.
+     */
+    public static final int COMPLETION_MODE_RESET = 0;
+
+    /**
+     * The player stays prepared and parked at the end when the video completes.
+     */
+    public static final int COMPLETION_MODE_END = 1;
+
+    /**
+     * The player stays prepared and parked at the start when the video completes.
+     */
+    public static final int COMPLETION_MODE_START = 2;
+
+    /**
+     * Default interval of progress updates, in milliseconds.
+     */
+    public static final int DEFAULT_PROGRESS_UPDATE_INTERVAL = 1000;
+
+    /**
+     * No controls, the view only shows the video.
+     */
+    public static final int CONTROLS_MODE_NONE = 0;
+
+    /**
+     * Controls are created the first time the video is tapped.
+     */
+    public static final int CONTROLS_MODE_LAZY = 1;
+
+    /**
+     * Controls are created when the view is attached.
+     */
+    public static final int CONTROLS_MODE_EAGER = 2;
+
+    /**
+     * Default min interval between two progress or buffer events, in milliseconds.
+     */
+    public static final int DEFAULT_PLAYBACK_EVENT_INTERVAL = 250;
+
+    /**
+     * Receives the playback events of a player, all methods are called on the main thread.
+     */
+    public interface OnPlaybackEventListener {
+
+        void onLoad(VideoPlayer player, int duration, int videoWidth, int videoHeight);
+
+        void onProgress(VideoPlayer player, int currentPosition, int duration);
+
+        void onBuffer(VideoPlayer player, boolean isBuffering, int bufferedPercent);
+
+        void onEnd(VideoPlayer player);
+
+        void onError(VideoPlayer player, int what, int extra);
+
+        /**
+         * Called when a playback session ends, because another video is opened or the player
+         * is recycled. The stats are reset afterwards, copy what needs to be kept.
+         */
+        void onStats(VideoPlayer player, PlaybackStats stats);
+    }
+
     private int mResizeMode = RESIZE_MODE_STRETCH;
+    private int mRenderBackend = RENDER_BACKEND_SURFACE;
+    private int mCompletionMode = COMPLETION_MODE_RESET;
+    private int mControlsMode = CONTROLS_MODE_EAGER;
     private boolean mIsAutoPlay = false;
+    private AutoplayCoordinator mAutoplayCoordinator;
+    private boolean mIsAutoplayAllowed = true;
+    private boolean mIsSuspended = false;
+    private boolean mIsLooping = false;
     private String mDataSource = "";
+    private final ArrayList<String> mPlaylist = new ArrayList<>();
+    private int mPlaylistIndex;
+    private int mNextPlaylistIndex = -1;
+    private final ArrayList<Rendition> mRenditions = new ArrayList<>();
+    private int mRenditionIndex = -1;
+    private int mSwitchPosition = -1;
+    private int mResumePosition = -1;
+    private BandwidthMeter mBandwidthMeter;
 
     private boolean mCanPlay = true;
     private boolean mIsPlaying = false;
@@ -67,6 +172,21 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
     private boolean mCanHideControlBar = true;
     private boolean mAlreadyInitPlayer = false;
     private boolean mStartListenProgress = false;
+    private int mProgressUpdateInterval = DEFAULT_PROGRESS_UPDATE_INTERVAL;
+    private int mDisplayedSecond = -1;
+    private boolean mShowHours = false;
+    private final char[] mCurrTimeText = new char[TimeFormat.BUFFER_LENGTH];
+    private final char[] mTotalTimeText = new char[TimeFormat.BUFFER_LENGTH];
+    private int mPlaybackEventInterval = DEFAULT_PLAYBACK_EVENT_INTERVAL;
+    private long mLastProgressEventTime;
+    private long mLastBufferEventTime;
+    private boolean mIsBuffering = false;
+    private int mBufferedPercent;
+    private OnPlaybackEventListener mOnPlaybackEventListener;
+    private final PlaybackStats mPlaybackStats = new PlaybackStats();
+    private final Rect mVisibleRect = new Rect();
+    private final Rect mVideoBounds = new Rect();
+    private final Matrix mVideoTransform = new Matrix();
 
     private View mControlBar;
     private SeekBar mProgress;
@@ -75,18 +195,104 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
     private ImageView mStateBtn;
     private TextView mTotalTime;
     private ProgressBar mProgressBar;
+    private ImageView mSeekPreview;
+
+    private View mRenderView;
+    private Surface mSurface;
+    private Surface mTextureSurface;
+    private PlaybackEngine mPlayer;
+    private EngineCallbackRelay mEngineCallback;
+    private PlaybackEngine.Factory mEngineFactory;
+    private MediaPlayerPool mPlayerPool = MediaPlayerPool.getDefault();
+    private DecoderBudget mDecoderBudget = DecoderBudget.getDefault();
+    private MediaPreloader mPreloader;
+    private VideoCacheProxy mCacheProxy;
+    private PositionStore mPositionStore;
+    private DownloadManager mDownloadManager;
+    private ThumbnailCache mThumbnailCache;
+    private ThumbnailExtractor mThumbnailExtractor;
+    private Bitmap mSeekPreviewImage;
+    private boolean mIsScrubbing = false;
+
+    private static final int SEEK_PREVIEW_WIDTH_DP = 120;
+
+    private final ThumbnailExtractor.Callback mThumbnailCallback =
+            new ThumbnailExtractor.Callback() {
+                @Override
+                public void onThumbnail(int positionMs, Bitmap thumbnail) {
+                    if (!mIsScrubbing) {
+                        mThumbnailCache.release(thumbnail);
+                        return;
+                    }
+                    setSeekPreviewImage(thumbnail);
+                    mSeekPreview.setVisibility(VISIBLE);
+                }
+            };
 
-    private SurfaceView mSfView;
-    private MediaPlayer mPlayer;
-    private SurfaceHolder mHolder;
+    private PosterLoader mPosterLoader;
+    private ImageView mPosterView;
+    private String mPosterUri;
+    private boolean mIsFirstFramePoster = false;
+    private boolean mIsFrameRendered = false;
 
-    private final Handler mHandler = new Handler();
+    private final PosterLoader.Callback mPosterCallback = new PosterLoader.Callback() {
+        @Override
+        public void onPoster(Bitmap poster) {
+            if (!mIsFrameRendered) {
+                showPoster(poster);
+            }
+        }
+    };
 
     private Pair<ValueAnimator, ValueAnimator> mBottomBarAnimator;
     private ViewVerticalAnimUpdateListener mBottomBarHideAnimatorListener;
     private ViewVerticalAnimUpdateListener mBottomBarShowAnimatorListener;
 
-    private Timer mTimer;
+    private static final int AUTO_HIDE_CONTROL_BAR_DELAY = 3000;
+
+    private UiScheduler.Token mAutoHideControlBarToken;
+
+    private final Runnable mAutoHideControlBarTask = new Runnable() {
+        @Override
+        public void run() {
+            mAutoHideControlBarToken = null;
+            if (mCanHideControlBar) {
+                hideControlBar();
+            }
+        }
+    };
+
+    /**
+     * Interval of the checks whether a playing video still advances.
+     */
+    private static final int STALL_CHECK_INTERVAL = 1000;
+
+    /**
+     * A playing video which does not advance for this long is opened again.
+     */
+    private static final int STALL_TIMEOUT = 10000;
+
+    private RecoveryPolicy mRecoveryPolicy = new RecoveryPolicy();
+    private UiScheduler.Token mRecoveryToken;
+    private UiScheduler.Token mStallCheckToken;
+    private int mLastPosition = -1;
+    private long mLastAdvanceTime;
+
+    private final Runnable mRecoveryTask = new Runnable() {
+        @Override
+        public void run() {
+            mRecoveryToken = null;
+            recover();
+        }
+    };
+
+    private final Runnable mStallCheckTask = new Runnable() {
+        @Override
+        public void run() {
+            mStallCheckToken = null;
+            checkStall();
+        }
+    };
 
     private static abstract class ViewVerticalAnimUpdateListener implements
             ValueAnimator.AnimatorUpdateListener {
@@ -126,16 +332,6 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
                 }
             };
 
-    private Runnable mListenProgressTask = new Runnable() {
-        @Override
-        public void run() {
-            final int currentPosition = mPlayer.getCurrentPosition();
-            mCurrTime.setText(getTimeText(currentPosition));
-            mProgress.setProgress(currentPosition);
-            mHandler.postDelayed(mListenProgressTask, 1000);
-        }
-    };
-
     public VideoPlayer(Context context) {
         this(context, null, 0);
     }
@@ -150,25 +346,123 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
     }
 
     private void init() {
+        mRenderView = createRenderView();
+        addView(mRenderView, VideoPlayer.createLP(
+                LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT)
+        );
+    }
+
+    /**
+     * Create the overlay views and animators of the controls if they are not created yet,
+     * they are brought up to date with the state of the player.
+     *
+     * @return true if the controls exist
+     */
+    private boolean ensureControls() {
+        if (mControlBar != null) {
+            return true;
+        }
+        if (mControlsMode == CONTROLS_MODE_NONE) {
+            return false;
+        }
         initChildView();
-        initHolder();
         initBottomAnimator();
+        syncControls();
+        return true;
+    }
+
+    private void syncControls() {
+        if (mAlreadyInitPlayer && mPlayer.isPrepared()) {
+            initProgress();
+            final int currentPosition = mPlayer.getCurrentPosition();
+            mProgress.setProgress(currentPosition);
+            setCurrTime(currentPosition);
+        }
+        if (mIsPlaying) {
+            refreshViewInPlay();
+        }
+        if (mAlreadyInitPlayer && mPlayer.getState() == PlaybackEngine.STATE_PREPARING) {
+            showLoading();
+        }
     }
 
-    private void initHolder() {
-        mHolder = mSfView.getHolder();
-        mHolder.addCallback(this);
+    private void removeControls() {
+        if (mControlBar == null) {
+            return;
+        }
+        cancelAutoHideControlBarTask();
+        mBottomBarAnimator.first.cancel();
+        mBottomBarAnimator.second.cancel();
+        removeView(mPlayBtn);
+        removeView(mProgressBar);
+        setSeekPreviewImage(null);
+        removeView(mSeekPreview);
+        removeView(mControlBar);
+        mIsScrubbing = false;
+        mControlBar = null;
+        mProgress = null;
+        mCurrTime = null;
+        mTotalTime = null;
+        mStateBtn = null;
+        mPlayBtn = null;
+        mProgressBar = null;
+        mSeekPreview = null;
+        mBottomBarAnimator = null;
+        mBottomBarHideAnimatorListener = null;
+        mBottomBarShowAnimatorListener = null;
     }
 
-    private void initPlayer() {
-        mPlayer = new MediaPlayer();
-        mPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
-        mPlayer.setSurface(mHolder.getSurface());
+    /**
+     * Set when the controls are created, a view which never shows controls skips inflating
+     * them.
+     *
+     * @param controlsMode target mode
+     */
+    public void setControlsMode(int controlsMode) {
+        if (this.mControlsMode == controlsMode) {
+            return;
+        }
+        this.mControlsMode = controlsMode;
+        if (controlsMode == CONTROLS_MODE_NONE) {
+            removeControls();
+        } else if (controlsMode == CONTROLS_MODE_EAGER && getWindowToken() != null) {
+            ensureControls();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mControlsMode == CONTROLS_MODE_EAGER) {
+            ensureControls();
+        }
+        if (mAutoplayCoordinator != null) {
+            mAutoplayCoordinator.register(this);
+        }
+    }
+
+    private View createRenderView() {
+        final View renderView;
+        if (mRenderBackend == RENDER_BACKEND_TEXTURE) {
+            final TextureView textureView = new TextureView(getContext());
+            textureView.setSurfaceTextureListener(this);
+            renderView = textureView;
+        } else {
+            final SurfaceView surfaceView = new SurfaceView(getContext());
+            surfaceView.getHolder().addCallback(this);
+            renderView = surfaceView;
+        }
+        renderView.setId(SF_VIEW_ID);
+        renderView.setOnClickListener(this);
+        return renderView;
+    }
 
-        mPlayer.setOnErrorListener(this);
-        mPlayer.setOnPreparedListener(this);
-        mPlayer.setOnCompletionListener(this);
-        mPlayer.setOnBufferingUpdateListener(this);
+    private void initPlayer() {
+        mEngineCallback = new EngineCallbackRelay(this);
+        mPlayer = mEngineFactory == null ? new PlayerController(mPlayerPool, mEngineCallback) :
+                mEngineFactory.create(mEngineCallback);
+        mPlayer.setSurface(mSurface);
+        mPlayer.setLooping(isLoopingVideo());
     }
 
     private void initBottomAnimator() {
@@ -197,10 +491,6 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
     }
 
     private void initChildView() {
-        mSfView = new SurfaceView(getContext());
-        mSfView.setId(SF_VIEW_ID);
-        mSfView.setOnClickListener(this);
-
         mPlayBtn = new ImageView(getContext());
         mPlayBtn.setId(PLAY_BTN_ID);
         mPlayBtn.setImageResource(R.drawable.play_video_player);
@@ -209,15 +499,18 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
         mProgressBar = new ProgressBar(getContext());
         mProgressBar.setVisibility(View.GONE);
 
-        addView(mSfView, VideoPlayer.createLP(
-                LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT)
-        );
+        mSeekPreview = new ImageView(getContext());
+        mSeekPreview.setVisibility(View.GONE);
+
         addView(mPlayBtn, VideoPlayer.createLP(
                 LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
 
         addView(mProgressBar, VideoPlayer.createLP(
                 LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
 
+        addView(mSeekPreview, VideoPlayer.createLP(
+                LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+
         final View bottom = getBottomView();
         addView(bottom);
     }
@@ -237,17 +530,40 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 if (fromUser) {
                     mCanHideControlBar = false;
+                    if (mIsScrubbing) {
+                        seekTo(progress);
+                    }
+                    if (mThumbnailExtractor != null) {
+                        mThumbnailExtractor.request(progress);
+                    }
+                    if (mSeekPreview.getVisibility() == VISIBLE) {
+                        layoutSeekPreview(getMeasuredWidth(), getMeasuredHeight());
+                    }
                 }
-                mCurrTime.setText(getTimeText(progress));
+                setCurrTime(progress);
             }
 
             @Override
             public void onStartTrackingTouch(SeekBar seekBar) {
+                mIsScrubbing = true;
+                if (mThumbnailExtractor != null) {
+                    mThumbnailExtractor.prefetch();
+                }
             }
 
             @Override
             public void onStopTrackingTouch(SeekBar seekBar) {
-                mPlayer.seekTo(seekBar.getProgress());
+                mIsScrubbing = false;
+                mSeekPreview.setVisibility(GONE);
+                setSeekPreviewImage(null);
+                if (usesRenditions() && mRenditionIndex >= 0) {
+                    final int index = selectRendition();
+                    if (index != mRenditionIndex) {
+                        switchRendition(index, seekBar.getProgress());
+                        return;
+                    }
+                }
+                seekTo(seekBar.getProgress());
                 startListenProgress();
             }
         });
@@ -283,6 +599,9 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
         super.onMeasure(MeasureSpec.makeMeasureSpec(width, wMode),
                 MeasureSpec.makeMeasureSpec(height, hMode));
 
+        if (mControlBar == null) {
+            return;
+        }
         int btnSize = getMeasuredWidth() / 6;
         mPlayBtn.setLayoutParams(createLP(btnSize, btnSize));
 
@@ -300,67 +619,56 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
         for (int i = 0; i < childCount; i++) {
             final View child = getChildAt(i);
             final int childSize = child.getMeasuredWidth();
-            if (child instanceof ImageView || child instanceof ProgressBar) {
+            if (child == mSeekPreview) {
+                layoutSeekPreview(width, height);
+            } else if (child == mPosterView) {
+                child.layout(0, 0, width, height);
+            } else if (child instanceof ImageView || child instanceof ProgressBar) {
                 child.layout((width - childSize) / 2, (height - childSize) / 2,
                         (width + childSize) / 2, (height + childSize) / 2);
-            } else if (child instanceof SurfaceView) {
-                layoutSurface(child, width, height);
+            } else if (child == mRenderView) {
+                layoutRenderView(width, height);
             } else {
                 child.layout(0, height - child.getMeasuredHeight(), width, height);
             }
         }
     }
 
-    private LayoutSurfaceTask mLayoutSurfaceTask;
-
-    private class LayoutSurfaceTask implements Runnable {
-
-        private int parentW;
-        private int parentH;
-
-        private LayoutSurfaceTask(int parentW, int parentH) {
-            this.parentW = parentW;
-            this.parentH = parentH;
-        }
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        loadPoster();
+    }
 
-        @Override
-        public void run() {
-            final int videoW = mPlayer.getVideoWidth();
-            final int videoH = mPlayer.getVideoHeight();
-            float scale = (float) videoH / videoW;
-            float frameScale = (float) parentH / parentW;
-            if (mResizeMode == RESIZE_MODE_CONTAIN) {
-                if (frameScale > scale) {
-                    final int targetH = (int) (parentW * scale);
-                    mSfView.layout(0, (parentH - targetH) / 2, parentW, (parentH + targetH) / 2);
-                } else {
-                    final int targetW = (int) (parentH / scale);
-                    mSfView.layout((parentW - targetW) / 2, 0, (parentW + targetW) / 2, parentH);
-                }
-            } else if (mResizeMode == RESIZE_MODE_COVER) {
-                if (frameScale > scale) {
-                    final int targetW = (int) (parentH / scale);
-                    mSfView.layout((parentW - targetW) / 2, 0, (parentW + targetW) / 2, parentH);
-                } else {
-                    final int targetH = (int) (parentW * scale);
-                    mSfView.layout((parentH - targetH) / 2, 0, parentW, (parentH + targetH) / 2);
-                }
-            }
+    private void layoutRenderView(int parentW, int parentH) {
+        final boolean hasVideoSize = mAlreadyInitPlayer && !isInvalidVideo();
+        VideoScaling.computeBounds(mResizeMode, parentW, parentH,
+                hasVideoSize ? mPlayer.getVideoWidth() : 0,
+                hasVideoSize ? mPlayer.getVideoHeight() : 0, mVideoBounds);
+        if (mRenderView instanceof TextureView) {
+            mRenderView.layout(0, 0, parentW, parentH);
+            VideoScaling.computeTransform(parentW, parentH, mVideoBounds, mVideoTransform);
+            ((TextureView) mRenderView).setTransform(mVideoTransform);
+        } else {
+            mRenderView.layout(mVideoBounds.left, mVideoBounds.top,
+                    mVideoBounds.right, mVideoBounds.bottom);
         }
-
     }
 
-    private void layoutSurface(View view, int parentW, int parentH) {
-        if (mResizeMode == RESIZE_MODE_CONTAIN || mResizeMode == RESIZE_MODE_COVER) {
-            if (!mAlreadyInitPlayer || isInvalidVideo()) {
-                if (mLayoutSurfaceTask == null) {
-                    view.layout(0, 0, parentW, parentH);
-                    mLayoutSurfaceTask = new LayoutSurfaceTask(parentW, parentH);
-                }
-            }
-        } else if (mResizeMode == RESIZE_MODE_STRETCH) {
-            view.layout(0, 0, parentW, parentH);
-        }
+    /**
+     * Place the seek preview above the control bar, centered on the seek bar thumb.
+     */
+    private void layoutSeekPreview(int parentW, int parentH) {
+        final int previewW = mSeekPreview.getMeasuredWidth();
+        final int previewH = mSeekPreview.getMeasuredHeight();
+        final int trackW = mProgress.getWidth() - mProgress.getPaddingLeft() -
+                mProgress.getPaddingRight();
+        final int max = mProgress.getMax();
+        final int thumbX = mProgress.getLeft() + mProgress.getPaddingLeft() +
+                (max > 0 ? (int) ((long) trackW * mProgress.getProgress() / max) : 0);
+        final int left = Math.max(0, Math.min(thumbX - previewW / 2, parentW - previewW));
+        final int bottom = parentH - mControlBar.getMeasuredHeight();
+        mSeekPreview.layout(left, bottom - previewH, left + previewW, bottom);
     }
 
     private static LayoutParams createLP(int width, int height) {
@@ -377,151 +685,1145 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
             return;
         }
         this.mResizeMode = resizeMode;
-        if (mAlreadyInitPlayer && !isInvalidVideo() && mLayoutSurfaceTask != null) {
-            mLayoutSurfaceTask.run();
+        layoutRenderView(getMeasuredWidth(), getMeasuredHeight());
+        if (mPosterView != null) {
+            mPosterView.setScaleType(posterScaleTypeOf(resizeMode));
         }
     }
 
     /**
-     * Open automatically after setting the url
+     * Set the view the video is rendered into, a playing video keeps playing on the new view
+     *
+     * @param renderBackend target backend
      */
-    public void enableAuto() {
-        this.mIsAutoPlay = true;
+    public void setRenderBackend(int renderBackend) {
+        if (this.mRenderBackend == renderBackend) {
+            return;
+        }
+        this.mRenderBackend = renderBackend;
+        final View oldRenderView = mRenderView;
+        mRenderView = createRenderView();
+        addView(mRenderView, indexOfChild(oldRenderView), VideoPlayer.createLP(
+                LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        removeView(oldRenderView);
     }
 
     /**
-     * Sets the video address
+     * Set the factory of the engine this view plays with, an opened video is opened again on
+     * the new engine
      *
-     * @param uri target video uri
+     * @param engineFactory target factory, null for the {@link android.media.MediaPlayer}
+     *                      engine leasing players from the player pool
      */
-    public void setUrl(String uri) {
-        if (uri.equals(this.mDataSource)) {
-            mIsNewVideo = false;
-        } else {
-            mIsNewVideo = true;
+    public void setEngineFactory(PlaybackEngine.Factory engineFactory) {
+        if (this.mEngineFactory == engineFactory) {
+            return;
         }
-        this.mDataSource = uri;
-    }
-
-    private boolean isInvalidVideo() {
-        return mPlayer.getVideoWidth() == 0 || mPlayer.getVideoHeight() == 0;
-    }
-
-    private void showErrorToast() {
-        Toast.makeText(getContext(), "Invalid video address!", Toast.LENGTH_SHORT).show();
-    }
-
-    private void startListenProgress() {
-        if (!mStartListenProgress) {
-            mHandler.post(mListenProgressTask);
-            mStartListenProgress = true;
+        this.mEngineFactory = engineFactory;
+        if (!mAlreadyInitPlayer) {
+            return;
+        }
+        final boolean wasOpened = !mIsNewVideo && mCanPlay && !TextUtils.isEmpty(mDataSource);
+        cancelRecovery();
+        stopListenProgress();
+        mPlayer.release();
+        initPlayer();
+        if (mDecoderBudget != null) {
+            mDecoderBudget.release(this);
+        }
+        mIsPlaying = false;
+        mIsNewVideo = true;
+        refreshViewInStop();
+        if (wasOpened || mIsAutoPlay) {
+            prepareNewVideo();
         }
     }
 
-    private void stopListenProgress() {
-        if (mStartListenProgress) {
-            mHandler.removeCallbacks(mListenProgressTask);
-            mStartListenProgress = false;
+    /**
+     * Set the pool which leases players to this view
+     *
+     * @param playerPool target pool
+     */
+    public void setPlayerPool(MediaPlayerPool playerPool) {
+        if (playerPool == null) {
+            throw new IllegalArgumentException("playerPool == null");
         }
+        this.mPlayerPool = playerPool;
     }
 
-    private void hidePlayBtn() {
-        mPlayBtn.setVisibility(View.GONE);
+    /**
+     * Set the preloader which may already hold a prepared player for the video
+     *
+     * @param preloader target preloader, null to always prepare the video in place
+     */
+    public void setPreloader(MediaPreloader preloader) {
+        this.mPreloader = preloader;
     }
 
-    private void showPlayBtn() {
-        mPlayBtn.setVisibility(View.VISIBLE);
+    /**
+     * Set the proxy which remote videos are routed through
+     *
+     * @param cacheProxy target proxy, null to play remote videos directly
+     */
+    public void setCacheProxy(VideoCacheProxy cacheProxy) {
+        this.mCacheProxy = cacheProxy;
     }
 
-    @Override
-    protected void onDetachedFromWindow() {
-        super.onDetachedFromWindow();
-        recycle();
+    /**
+     * Set the manager of the videos saved for offline playback, a saved video is played from
+     * its local copy
+     *
+     * @param downloadManager target manager, null to always play the video address
+     */
+    public void setDownloadManager(DownloadManager downloadManager) {
+        this.mDownloadManager = downloadManager;
     }
 
     /**
-     * Stop play
+     * Set the store the position of the video is kept in, a video opened again starts where it
+     * was left
+     *
+     * @param positionStore target store, null to always start from the beginning
      */
-    public void stop(){
-        if(mIsPlaying){
-            resetPlayer();
-        }
+    public void setPositionStore(PositionStore positionStore) {
+        this.mPositionStore = positionStore;
     }
 
     /**
-     * Recycle videoPlayer manually
+     * Set the interval of progress updates
+     *
+     * @param intervalMs interval in milliseconds
      */
-    public void recycle() {
-        if (mTimer != null) {
-            mTimer.cancel();
-            mTimer = null;
+    public void setProgressUpdateInterval(int intervalMs) {
+        if (intervalMs <= 0) {
+            intervalMs = DEFAULT_PROGRESS_UPDATE_INTERVAL;
         }
-        if (mBottomBarAnimator.first.isRunning()) {
-            mBottomBarAnimator.first.cancel();
+        this.mProgressUpdateInterval = intervalMs;
+        if (mStartListenProgress) {
+            ProgressTicker.getInstance().register(this, intervalMs);
         }
-        if (mBottomBarAnimator.second.isRunning()) {
-            mBottomBarAnimator.first.cancel();
+    }
+
+    /**
+     * Set what the player does when the video completes
+     *
+     * @param completionMode target mode
+     */
+    public void setCompletionMode(int completionMode) {
+        this.mCompletionMode = completionMode;
+    }
+
+    /**
+     * Play the video again seamlessly when it reaches the end
+     *
+     * @param looping true to loop the video
+     */
+    public void setLooping(boolean looping) {
+        if (this.mIsLooping == looping) {
+            return;
         }
-        stopListenProgress();
+        this.mIsLooping = looping;
         if (mPlayer != null) {
-            mPlayer.reset();
-            mPlayer.release();
-            mPlayer = null;
+            mPlayer.setLooping(isLoopingVideo());
         }
     }
 
-    @Override
-    public void surfaceCreated(SurfaceHolder holder) {
-        initPlayer();
-        mAlreadyInitPlayer = true;
-        if (mIsAutoPlay) {
-            prepareNewVideo();
-            play();
-        }
+    /**
+     * With a playlist, looping starts the playlist over instead of repeating one video.
+     */
+    private boolean isLoopingVideo() {
+        return mIsLooping && mPlaylist.isEmpty();
     }
 
-    @Override
-    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+    /**
+     * Set the listener of playback events
+     *
+     * @param listener target listener, null to stop listening
+     */
+    public void setOnPlaybackEventListener(OnPlaybackEventListener listener) {
+        this.mOnPlaybackEventListener = listener;
     }
 
-    @Override
-    public void surfaceDestroyed(SurfaceHolder holder) {
+    /**
+     * Set the min interval between two progress events, and between two buffer progress events
+     *
+     * @param intervalMs interval in milliseconds
+     */
+    public void setPlaybackEventInterval(int intervalMs) {
+        this.mPlaybackEventInterval = intervalMs < 0 ? DEFAULT_PLAYBACK_EVENT_INTERVAL : intervalMs;
     }
 
-    @Override
-    public void onCompletion(MediaPlayer mp) {
-        resetPlayer();
-    }
+    /**
+     * Set the cache of seek preview thumbnails, thumbnails are shown while scrubbing only if
+     * a cache is set
+     *
+     * @param thumbnailCache target cache, null to disable seek previews
+     */
+    public void setThumbnailCache(ThumbnailCache thumbnailCache) {
+        if (mThumbnailExtractor != null) {
+            mThumbnailExtractor.close();
+            mThumbnailExtractor = null;
+        }
+        setSeekPreviewImage(null);
+        mThumbnailCache = thumbnailCache;
+        if (thumbnailCache != null) {
+            final float density = getResources().getDisplayMetrics().density;
+            mThumbnailExtractor = new ThumbnailExtractor(thumbnailCache,
+                    (int) (SEEK_PREVIEW_WIDTH_DP * density));
+            if (mPlayer != null && mPlayer.isPrepared() && !isInvalidVideo()) {
+                openThumbnails();
+            }
+        }
+    }
+
+    /**
+     * Set the cache of posters, a poster is shown only if a cache is set
+     *
+     * @param posterCache target cache, null to disable posters
+     */
+    public void setPosterCache(ThumbnailCache posterCache) {
+        if (mPosterLoader != null) {
+            mPosterLoader.cancel();
+        }
+        mPosterLoader = posterCache == null ? null : new PosterLoader(getContext(), posterCache);
+        loadPoster();
+    }
+
+    /**
+     * Set the image shown until the first frame of the video renders, it is downsampled to the
+     * size of this view
+     *
+     * @param uri target image uri, null to show no image
+     */
+    public void setPoster(String uri) {
+        this.mPosterUri = TextUtils.isEmpty(uri) ? null : uri;
+        loadPoster();
+    }
+
+    /**
+     * Show the first frame of the video until it renders, if no poster image is set
+     *
+     * @param enabled true to extract the first frame ahead
+     */
+    public void setFirstFramePoster(boolean enabled) {
+        this.mIsFirstFramePoster = enabled;
+        loadPoster();
+    }
+
+    /**
+     * Take over the video of another view together with its engine, e.g. to go fullscreen. The
+     * video keeps its position, buffer and decoder, only the surface it renders into changes.
+     * The video this view had is closed, the other view is left with its video closed and
+     * opens it again if played.
+     *
+     * @param source view the video is taken from
+     * @return true if the engine was taken over, false if the source had no video opened
+     */
+    public boolean takeOver(VideoPlayer source) {
+        if (source == this) {
+            throw new IllegalArgumentException("source == this");
+        }
+        if (!source.canHandOver()) {
+            return false;
+        }
+        cancelRecovery();
+        stopListenProgress();
+        endSession();
+        if (mThumbnailExtractor != null) {
+            mThumbnailExtractor.close();
+        }
+        savePosition();
+        if (mAlreadyInitPlayer) {
+            mPlayer.release();
+        }
+
+        mDataSource = source.mDataSource;
+        mRenditions.clear();
+        mRenditions.addAll(source.mRenditions);
+        mRenditionIndex = source.mRenditionIndex;
+        mPlaylist.clear();
+        mPlaylist.addAll(source.mPlaylist);
+        mPlaylistIndex = source.mPlaylistIndex;
+        mNextPlaylistIndex = source.mNextPlaylistIndex;
+        mSwitchPosition = source.mSwitchPosition;
+        mResumePosition = -1;
+        mLastPosition = source.mLastPosition;
+        mLastAdvanceTime = source.mLastAdvanceTime;
+        mIsNewVideo = source.mIsNewVideo;
+        mIsPlaying = source.mIsPlaying;
+        mIsPlayFinished = source.mIsPlayFinished;
+        mIsSuspended = source.mIsSuspended;
+        mIsAutoplayAllowed = source.mIsAutoplayAllowed;
+        mIsBuffering = source.mIsBuffering;
+        mBufferedPercent = source.mBufferedPercent;
+        mCanPlay = true;
+        mPlaybackStats.moveFrom(source.mPlaybackStats);
+        if (mRecoveryPolicy != null) {
+            mRecoveryPolicy.reset();
+        }
+
+        mPlayer = source.mPlayer;
+        mEngineCallback = source.mEngineCallback;
+        mEngineCallback.setTarget(this);
+        mAlreadyInitPlayer = true;
+        source.handOver();
+        mPlayer.setSurface(mSurface);
+        mPlayer.setLooping(isLoopingVideo());
+        if (mDecoderBudget != null) {
+            mDecoderBudget.acquire(this);
+        }
+        onTakenOver();
+        return true;
+    }
+
+    /**
+     * @return true if the engine has a video opened which may be handed over to another view
+     */
+    private boolean canHandOver() {
+        if (!mAlreadyInitPlayer || mRecoveryToken != null) {
+            return false;
+        }
+        switch (mPlayer.getState()) {
+            case PlaybackEngine.STATE_PREPARING:
+            case PlaybackEngine.STATE_PREPARED:
+            case PlaybackEngine.STATE_STARTED:
+            case PlaybackEngine.STATE_PAUSED:
+            case PlaybackEngine.STATE_COMPLETED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Let go of the engine taken over by another view and start over with a new one, the video
+     * address is kept.
+     */
+    private void handOver() {
+        cancelAutoHideControlBarTask();
+        stopListenProgress();
+        if (mThumbnailExtractor != null) {
+            mThumbnailExtractor.close();
+        }
+        if (mDecoderBudget != null) {
+            mDecoderBudget.release(this);
+        }
+        initPlayer();
+        mIsNewVideo = true;
+        mIsPlaying = false;
+        mIsPlayFinished = false;
+        mIsSuspended = false;
+        mIsBuffering = false;
+        mCanPlay = true;
+        mResumePosition = -1;
+        mSwitchPosition = -1;
+        mLastPosition = -1;
+        hideLoading();
+        refreshViewInStop();
+        invalidateFrame();
+    }
+
+    /**
+     * Bring this view up to the state of the engine just taken over.
+     */
+    private void onTakenOver() {
+        requestLayout();
+        if (!mPlayer.isPrepared()) {
+            invalidateFrame();
+            if (mControlBar != null) {
+                refreshViewInStop();
+                syncControls();
+            }
+            return;
+        }
+        mIsFrameRendered = true;
+        if (mPosterLoader != null) {
+            mPosterLoader.cancel();
+        }
+        hidePoster();
+        hideLoading();
+        layoutRenderView(getMeasuredWidth(), getMeasuredHeight());
+        initProgress();
+        openThumbnails();
+        if (mControlBar != null) {
+            syncControls();
+        }
+        if (mIsPlaying) {
+            refreshViewInPlay();
+            startAutoHideControlBarTask();
+        } else {
+            refreshViewInPause();
+            redrawFrame();
+        }
+        if (mOnPlaybackEventListener != null) {
+            mOnPlaybackEventListener.onLoad(this, mPlayer.getDuration(),
+                    mPlayer.getVideoWidth(), mPlayer.getVideoHeight());
+        }
+    }
+
+    /**
+     * A paused video draws no frame into a new surface by itself, seeking in place draws it.
+     */
+    private void redrawFrame() {
+        if (mSurface != null && !mIsPlaying && !mIsPlayFinished && mPlayer.isPrepared()) {
+            mPlayer.seekTo(mPlayer.getCurrentPosition());
+        }
+    }
+
+    /**
+     * Get the stats of the current playback session, they are updated in place.
+     *
+     * @return stats of the current session
+     */
+    public PlaybackStats getPlaybackStats() {
+        return mPlaybackStats;
+    }
+
+    /**
+     * Open automatically after setting the url
+     */
+    public void enableAuto() {
+        this.mIsAutoPlay = true;
+    }
+
+    /**
+     * Set the coordinator which decides when this view may play, by how visible it is among the
+     * other views of the coordinator
+     *
+     * @param coordinator target coordinator, null to play regardless of visibility
+     */
+    public void setAutoplayCoordinator(AutoplayCoordinator coordinator) {
+        if (this.mAutoplayCoordinator == coordinator) {
+            return;
+        }
+        final boolean isAttached = getWindowToken() != null;
+        if (mAutoplayCoordinator != null && isAttached) {
+            mAutoplayCoordinator.unregister(this);
+        }
+        this.mAutoplayCoordinator = coordinator;
+        if (coordinator == null) {
+            setAutoplayAllowed(true);
+        } else if (isAttached) {
+            coordinator.register(this);
+        }
+    }
+
+    /**
+     * Called by the coordinator, a view which is not allowed pauses and a view allowed again
+     * resumes if it was paused by the coordinator or autoplays.
+     */
+    void setAutoplayAllowed(boolean allowed) {
+        mIsAutoplayAllowed = allowed;
+        if (!mAlreadyInitPlayer) {
+            return;
+        }
+        if (!allowed) {
+            if (mIsPlaying) {
+                pause();
+                mIsSuspended = true;
+            }
+            return;
+        }
+        if (!mIsSuspended && !(mIsNewVideo && mIsAutoPlay)) {
+            return;
+        }
+        if (mPlayer.isPrepared()) {
+            mIsSuspended = false;
+            play();
+        } else if (mIsNewVideo && mCanPlay && !TextUtils.isEmpty(mDataSource) &&
+                mPlayer.getState() == PlaybackEngine.STATE_IDLE) {
+            mIsSuspended = false;
+            prepareNewVideo();
+        }
+    }
+
+    /**
+     * Release the decoder of the opened video, the video is opened again at the same position
+     * when it resumes. A video which failed may be tried again afterwards.
+     */
+    void releaseDecoder() {
+        if (!mAlreadyInitPlayer || mPlayer.getState() == PlaybackEngine.STATE_IDLE) {
+            return;
+        }
+        final boolean wasOpened = !mIsNewVideo && mCanPlay;
+        final boolean wasFinished = mIsPlayFinished;
+        if (mIsPlaying) {
+            pause();
+        }
+        if (!wasOpened || wasFinished) {
+            mResumePosition = -1;
+        } else {
+            mResumePosition = mPlayer.isPrepared() ? mPlayer.getCurrentPosition() : mLastPosition;
+        }
+        cancelRecovery();
+        stopListenProgress();
+        mPlayer.release();
+        initPlayer();
+        if (mDecoderBudget != null) {
+            mDecoderBudget.release(this);
+        }
+        invalidateFrame();
+        mIsNewVideo = true;
+        mIsPlayFinished = false;
+        mCanPlay = true;
+        mIsSuspended = wasOpened && !wasFinished;
+    }
+
+    /**
+     * @return true if this view holds a decoder it neither plays nor prepares with
+     */
+    boolean hasIdleDecoder() {
+        if (!mAlreadyInitPlayer || mIsPlaying) {
+            return false;
+        }
+        final int state = mPlayer.getState();
+        return state != PlaybackEngine.STATE_IDLE && state != PlaybackEngine.STATE_PREPARING;
+    }
+
+    /**
+     * Set the budget this view holds its decoder within
+     *
+     * @param decoderBudget target budget, null to hold the decoder regardless of other views
+     */
+    public void setDecoderBudget(DecoderBudget decoderBudget) {
+        if (this.mDecoderBudget == decoderBudget) {
+            return;
+        }
+        if (mDecoderBudget != null) {
+            mDecoderBudget.release(this);
+        }
+        this.mDecoderBudget = decoderBudget;
+        if (decoderBudget != null && mAlreadyInitPlayer &&
+                mPlayer.getState() != PlaybackEngine.STATE_IDLE) {
+            decoderBudget.acquire(this);
+        }
+    }
+
+    /**
+     * Sets the video address
+     *
+     * @param uri target video uri
+     */
+    public void setUrl(String uri) {
+        if (uri.equals(this.mDataSource)) {
+            mIsNewVideo = false;
+        } else {
+            mIsNewVideo = true;
+            mResumePosition = -1;
+        }
+        this.mDataSource = uri;
+        if (mIsNewVideo) {
+            invalidateFrame();
+        }
+    }
+
+    /**
+     * Set the renditions the video is offered in, they replace the video address. The rendition
+     * played is selected by the estimated bandwidth and the size of this view when the video is
+     * opened, and selected again at the next seek or rebuffer
+     *
+     * @param renditions target renditions, empty to play the video address only
+     */
+    public void setRenditions(List<Rendition> renditions) {
+        mRenditions.clear();
+        mRenditions.addAll(renditions);
+        Collections.sort(mRenditions, Rendition.BY_BITRATE);
+        mRenditionIndex = -1;
+        if (!mRenditions.isEmpty()) {
+            setUrl(mRenditions.get(0).getUri());
+            mIsNewVideo = true;
+        }
+    }
+
+    /**
+     * Set the meter the rendition is selected by
+     *
+     * @param bandwidthMeter target meter, null to assume {@link BandwidthMeter#DEFAULT_ESTIMATE}
+     */
+    public void setBandwidthMeter(BandwidthMeter bandwidthMeter) {
+        this.mBandwidthMeter = bandwidthMeter;
+    }
+
+    /**
+     * Playlists play their videos as they are, renditions only apply to a single video.
+     */
+    private boolean usesRenditions() {
+        return !mRenditions.isEmpty() && mPlaylist.isEmpty();
+    }
+
+    private int selectRendition() {
+        final long bandwidth = mBandwidthMeter == null ?
+                BandwidthMeter.DEFAULT_ESTIMATE : mBandwidthMeter.getEstimate();
+        return Rendition.select(mRenditions, bandwidth, getMeasuredWidth(), getMeasuredHeight());
+    }
+
+    /**
+     * Switch to another rendition at a safe point, the video is opened again at the position.
+     */
+    private void switchRendition(int index, int positionMs) {
+        mRenditionIndex = index;
+        mDataSource = mRenditions.get(index).getUri();
+        reopen(positionMs);
+    }
+
+    /**
+     * Open the video again on the same engine, it plays from the position once prepared.
+     */
+    private void reopen(int positionMs) {
+        mSwitchPosition = positionMs;
+        mIsNewVideo = true;
+        stopListenProgress();
+        mIsPlaying = false;
+        showLoading();
+        mPlayer.open(getPlayableDataSource());
+    }
+
+    /**
+     * Set the policy failed and stalled videos are opened again by
+     *
+     * @param recoveryPolicy target policy of this view only, null to stop at the first failure
+     */
+    public void setRecoveryPolicy(RecoveryPolicy recoveryPolicy) {
+        if (recoveryPolicy == null) {
+            cancelRecovery();
+        }
+        this.mRecoveryPolicy = recoveryPolicy;
+    }
+
+    /**
+     * Retry a transient failure after the backoff delay of the policy.
+     *
+     * @return true if the failure is retried
+     */
+    private boolean scheduleRecovery(int what, int extra) {
+        if (mRecoveryPolicy == null || !mCanPlay || !RecoveryPolicy.isTransient(what, extra)) {
+            return false;
+        }
+        final int delay = mRecoveryPolicy.nextDelay();
+        if (delay < 0) {
+            return false;
+        }
+        cancelRecovery();
+        stopListenProgress();
+        mIsPlaying = false;
+        showLoading();
+        mRecoveryToken = UiScheduler.getInstance().schedule(mRecoveryTask, delay);
+        return true;
+    }
+
+    private void cancelRecovery() {
+        if (mRecoveryToken != null) {
+            mRecoveryToken.cancel();
+            mRecoveryToken = null;
+        }
+    }
+
+    /**
+     * Open the video again at the last known position, a video which failed to open is opened
+     * at the position it was opened at. Renditions are selected again, the failure may come from
+     * a slower network.
+     */
+    private void recover() {
+        final int position = mIsNewVideo ? mSwitchPosition : mLastPosition;
+        mPlaybackStats.markRecovery();
+        if (usesRenditions()) {
+            switchRendition(selectRendition(), position);
+        } else {
+            reopen(position);
+        }
+    }
+
+    private void startStallCheck() {
+        if (mStallCheckToken == null) {
+            mLastAdvanceTime = SystemClock.uptimeMillis();
+            mStallCheckToken = UiScheduler.getInstance().schedule(mStallCheckTask,
+                    STALL_CHECK_INTERVAL);
+        }
+    }
+
+    private void stopStallCheck() {
+        if (mStallCheckToken != null) {
+            mStallCheckToken.cancel();
+            mStallCheckToken = null;
+        }
+    }
+
+    private void checkStall() {
+        if (!mIsPlaying || mPlayer == null) {
+            return;
+        }
+        final int position = mPlayer.getCurrentPosition();
+        final long now = SystemClock.uptimeMillis();
+        if (position != mLastPosition) {
+            if (mLastPosition >= 0 && position > mLastPosition) {
+                onFrameRendered();
+            }
+            mLastPosition = position;
+            mLastAdvanceTime = now;
+            if (mRecoveryPolicy != null) {
+                mRecoveryPolicy.reset();
+            }
+        } else if (now - mLastAdvanceTime >= STALL_TIMEOUT) {
+            onError(mPlayer, MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_TIMED_OUT);
+            return;
+        }
+        mStallCheckToken = UiScheduler.getInstance().schedule(mStallCheckTask,
+                STALL_CHECK_INTERVAL);
+    }
+
+    /**
+     * Thumbnails are extracted from the lowest rendition, they are small anyway.
+     */
+    private String getThumbnailUri() {
+        return getContentUri();
+    }
+
+    /**
+     * @return the uri identifying the video whichever rendition is played
+     */
+    private String getContentUri() {
+        return usesRenditions() ? mRenditions.get(0).getUri() : mDataSource;
+    }
+
+    /**
+     * Set the videos played one after another, the first one becomes the video address. Each
+     * next video is prepared ahead and follows the current one without a gap
+     *
+     * @param uris target videos, empty to play the video address only
+     */
+    public void setPlaylist(List<String> uris) {
+        mPlaylist.clear();
+        mPlaylist.addAll(uris);
+        mPlaylistIndex = 0;
+        mNextPlaylistIndex = -1;
+        if (mPlayer != null) {
+            mPlayer.setLooping(isLoopingVideo());
+            mPlayer.prepareNext(null);
+        }
+        if (!mPlaylist.isEmpty()) {
+            setUrl(mPlaylist.get(0));
+        }
+    }
+
+    /**
+     * Play the next video of the playlist, with looping the last one is followed by the first
+     */
+    public void next() {
+        final int index = getPlaylistIndex(mPlaylistIndex + 1);
+        if (index >= 0) {
+            playItem(index);
+        }
+    }
+
+    /**
+     * Play the previous video of the playlist, with looping the first one is preceded by the
+     * last
+     */
+    public void previous() {
+        final int index = getPlaylistIndex(mPlaylistIndex - 1);
+        if (index >= 0) {
+            playItem(index);
+        }
+    }
+
+    /**
+     * @return the playlist index at the given position, wrapped around when looping, or -1
+     */
+    private int getPlaylistIndex(int position) {
+        final int size = mPlaylist.size();
+        if (size == 0) {
+            return -1;
+        }
+        if (position >= 0 && position < size) {
+            return position;
+        }
+        return mIsLooping ? (position + size) % size : -1;
+    }
+
+    private void playItem(int index) {
+        mPlaylistIndex = index;
+        setUrl(mPlaylist.get(index));
+        mIsNewVideo = true;
+        mResumePosition = -1;
+        mCanPlay = true;
+        if (!mAlreadyInitPlayer) {
+            return;
+        }
+        stopListenProgress();
+        mIsPlaying = false;
+        prepareNewVideo();
+    }
+
+    /**
+     * Prepare the video following the current one of the playlist on the second player.
+     */
+    private void prepareNextItem() {
+        mNextPlaylistIndex = getPlaylistIndex(mPlaylistIndex + 1);
+        mPlayer.prepareNext(mNextPlaylistIndex < 0 ? null :
+                getPlayableDataSource(mPlaylist.get(mNextPlaylistIndex)));
+    }
+
+    @Override
+    public void onTransition(PlaybackEngine engine) {
+        if (mOnPlaybackEventListener != null) {
+            mOnPlaybackEventListener.onEnd(this);
+        }
+        endSession();
+        if (mNextPlaylistIndex >= 0 && mNextPlaylistIndex < mPlaylist.size()) {
+            mPlaylistIndex = mNextPlaylistIndex;
+            mDataSource = mPlaylist.get(mPlaylistIndex);
+        }
+        mPlaybackStats.reset(mDataSource);
+        mPlaybackStats.markPrepared();
+        mDisplayedSecond = -1;
+        layoutRenderView(getMeasuredWidth(), getMeasuredHeight());
+        initProgress();
+        openThumbnails();
+        if (mOnPlaybackEventListener != null) {
+            mOnPlaybackEventListener.onLoad(this, mPlayer.getDuration(),
+                    mPlayer.getVideoWidth(), mPlayer.getVideoHeight());
+        }
+        prepareNextItem();
+    }
+
+    private boolean isInvalidVideo() {
+        return mPlayer.getVideoWidth() == 0 || mPlayer.getVideoHeight() == 0;
+    }
+
+    private void showErrorToast() {
+        Toast.makeText(getContext(), "Invalid video address!", Toast.LENGTH_SHORT).show();
+    }
+
+    private void startListenProgress() {
+        startStallCheck();
+        if (!mStartListenProgress) {
+            ProgressTicker.getInstance().register(this, mProgressUpdateInterval);
+            mStartListenProgress = true;
+        }
+    }
+
+    private void stopListenProgress() {
+        stopStallCheck();
+        if (mStartListenProgress) {
+            ProgressTicker.getInstance().unregister(this);
+            mStartListenProgress = false;
+        }
+    }
+
+    @Override
+    public void onTick() {
+        if (!mIsPlaying || mPlayer == null) {
+            return;
+        }
+        final boolean isVisible = mControlBar != null && isVisibleOnScreen();
+        if (!isVisible && mOnPlaybackEventListener == null) {
+            return;
+        }
+        final int currentPosition = mPlayer.getCurrentPosition();
+        dispatchProgress(currentPosition);
+        if (!isVisible || mControlBar == null) {
+            return;
+        }
+        if (currentPosition != mProgress.getProgress()) {
+            mProgress.setProgress(currentPosition);
+        }
+        setCurrTime(currentPosition);
+    }
+
+    private void dispatchProgress(int currentPosition) {
+        if (mOnPlaybackEventListener == null) {
+            return;
+        }
+        final long now = SystemClock.uptimeMillis();
+        if (now - mLastProgressEventTime >= mPlaybackEventInterval) {
+            mLastProgressEventTime = now;
+            mOnPlaybackEventListener.onProgress(this, currentPosition, mPlayer.getDuration());
+        }
+    }
+
+    private boolean isVisibleOnScreen() {
+        return getWindowVisibility() == VISIBLE && isShown() &&
+                getGlobalVisibleRect(mVisibleRect);
+    }
+
+    private void setCurrTime(int milliseconds) {
+        if (mControlBar == null) {
+            return;
+        }
+        final int second = milliseconds / 1000;
+        if (second != mDisplayedSecond) {
+            mDisplayedSecond = second;
+            final int length = TimeFormat.format(milliseconds, mShowHours, mCurrTimeText);
+            mCurrTime.setText(mCurrTimeText, 0, length);
+        }
+    }
+
+    private void hidePlayBtn() {
+        if (mPlayBtn != null) {
+            mPlayBtn.setVisibility(View.GONE);
+        }
+    }
+
+    private void showPlayBtn() {
+        if (mPlayBtn != null) {
+            mPlayBtn.setVisibility(View.VISIBLE);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mAutoplayCoordinator != null) {
+            mAutoplayCoordinator.unregister(this);
+        }
+        recycle();
+    }
+
+    /**
+     * Stop play
+     */
+    public void stop(){
+        if(mIsPlaying){
+            resetPlayer();
+        }
+    }
+
+    /**
+     * Recycle videoPlayer manually
+     */
+    public void recycle() {
+        cancelAutoHideControlBarTask();
+        cancelRecovery();
+        if (mBottomBarAnimator != null) {
+            if (mBottomBarAnimator.first.isRunning()) {
+                mBottomBarAnimator.first.cancel();
+            }
+            if (mBottomBarAnimator.second.isRunning()) {
+                mBottomBarAnimator.second.cancel();
+            }
+        }
+        stopListenProgress();
+        endSession();
+        if (mThumbnailExtractor != null) {
+            mThumbnailExtractor.close();
+        }
+        if (mPosterLoader != null) {
+            mPosterLoader.cancel();
+        }
+        savePosition();
+        if (mPlayer != null) {
+            mPlayer.release();
+            mPlayer = null;
+            mAlreadyInitPlayer = false;
+        }
+        if (mDecoderBudget != null) {
+            mDecoderBudget.release(this);
+        }
+    }
+
+    private void onRenderSurfaceAvailable(Surface surface) {
+        mSurface = surface;
+        if (mAlreadyInitPlayer) {
+            mPlayer.setSurface(surface);
+            redrawFrame();
+            return;
+        }
+        initPlayer();
+        mAlreadyInitPlayer = true;
+        if (mIsAutoPlay && mIsAutoplayAllowed) {
+            prepareNewVideo();
+        }
+    }
+
+    private void onRenderSurfaceDestroyed(Surface surface) {
+        if (mSurface != surface) {
+            return;
+        }
+        mSurface = null;
+        if (mAlreadyInitPlayer) {
+            mPlayer.setSurface(null);
+        }
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        onRenderSurfaceAvailable(holder.getSurface());
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        onRenderSurfaceDestroyed(holder.getSurface());
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+        mTextureSurface = new Surface(surfaceTexture);
+        onRenderSurfaceAvailable(mTextureSurface);
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        if (mTextureSurface != null) {
+            onRenderSurfaceDestroyed(mTextureSurface);
+            mTextureSurface.release();
+            mTextureSurface = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+        if (mPlayer != null && mPlayer.isPrepared()) {
+            onFrameRendered();
+        }
+    }
+
+    @Override
+    public void onCompletion(PlaybackEngine engine) {
+        if (mPositionStore != null) {
+            mPositionStore.remove(getContentUri());
+        }
+        final int nextIndex = getPlaylistIndex(mPlaylistIndex + 1);
+        if (nextIndex >= 0) {
+            playItem(nextIndex);
+        } else if (mCompletionMode == COMPLETION_MODE_RESET) {
+            resetPlayer();
+        } else {
+            parkPlayer();
+        }
+        if (mOnPlaybackEventListener != null) {
+            mOnPlaybackEventListener.onEnd(this);
+        }
+    }
+
+    private void parkPlayer() {
+        stopListenProgress();
+        mIsPlayFinished = true;
+        mIsPlaying = false;
+        if (mCompletionMode == COMPLETION_MODE_START) {
+            seekTo(0);
+        }
+        if (mControlBar == null) {
+            return;
+        }
+        if (mCompletionMode == COMPLETION_MODE_START) {
+            mProgress.setProgress(0);
+            setCurrTime(0);
+        } else {
+            mProgress.setProgress(mProgress.getMax());
+            setCurrTime(mPlayer.getDuration());
+        }
+        showPlayBtn();
+        mStateBtn.setImageResource(R.drawable.play_video_player);
+    }
 
     private void resetPlayer() {
+        savePosition();
         stopListenProgress();
         mPlayer.stop();
         mIsPlayFinished = true;
         mIsPlaying = false;
         refreshViewInStop();
+        invalidateFrame();
     }
 
     private void refreshViewInStop() {
+        if (mControlBar == null) {
+            return;
+        }
         mProgress.setMax(0);
         mProgress.setProgress(0);
         showPlayBtn();
         mStateBtn.setImageResource(R.drawable.play_video_player);
-        mCurrTime.setText("00:00");
+        setCurrTime(0);
+    }
+
+    @Override
+    public void onBufferingUpdate(PlaybackEngine engine, int percent) {
+        if (mControlBar != null) {
+            mProgress.setSecondaryProgress(percent * mProgress.getMax() / 100);
+        }
+        if (mOnPlaybackEventListener == null || percent == mBufferedPercent) {
+            return;
+        }
+        mBufferedPercent = percent;
+        final long now = SystemClock.uptimeMillis();
+        if (now - mLastBufferEventTime >= mPlaybackEventInterval || percent == 100) {
+            mLastBufferEventTime = now;
+            mOnPlaybackEventListener.onBuffer(this, mIsBuffering, percent);
+        }
+    }
+
+    @Override
+    public void onInfo(PlaybackEngine engine, int what, int extra) {
+        switch (what) {
+            case MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START:
+                onFrameRendered();
+                break;
+            case MediaPlayer.MEDIA_INFO_BUFFERING_START:
+                mPlaybackStats.markBufferingStart();
+                setBuffering(true);
+                switchDownOnRebuffer();
+                break;
+            case MediaPlayer.MEDIA_INFO_BUFFERING_END:
+                mPlaybackStats.markBufferingEnd();
+                setBuffering(false);
+                break;
+            case MediaPlayer.MEDIA_INFO_VIDEO_TRACK_LAGGING:
+                mPlaybackStats.markLagging();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void switchDownOnRebuffer() {
+        if (!mIsPlaying || !usesRenditions() || mRenditionIndex < 0) {
+            return;
+        }
+        final int index = selectRendition();
+        if (index < mRenditionIndex) {
+            switchRendition(index, mPlayer.getCurrentPosition());
+        }
     }
 
     @Override
-    public void onBufferingUpdate(MediaPlayer mp, int percent) {
-        mProgress.setSecondaryProgress(percent * mProgress.getMax() / 100);
+    public void onSeekComplete(PlaybackEngine engine) {
+        mPlaybackStats.markSeekComplete();
+    }
+
+    private void seekTo(int msec) {
+        mPlaybackStats.markSeekStart();
+        mPlayer.seekTo(msec);
+    }
+
+    private void setBuffering(boolean isBuffering) {
+        if (mIsBuffering == isBuffering) {
+            return;
+        }
+        mIsBuffering = isBuffering;
+        if (mOnPlaybackEventListener != null) {
+            mLastBufferEventTime = SystemClock.uptimeMillis();
+            mOnPlaybackEventListener.onBuffer(this, isBuffering, mBufferedPercent);
+        }
     }
 
     private void hideControlBar() {
-        if (!mBottomBarAnimator.first.isRunning()) {
+        if (mBottomBarAnimator != null && !mBottomBarAnimator.first.isRunning()) {
             mBottomBarAnimator.first.start();
         }
     }
 
     private void showControlBar() {
-        if (!mBottomBarAnimator.second.isRunning()) {
+        if (mBottomBarAnimator != null && !mBottomBarAnimator.second.isRunning()) {
             mBottomBarAnimator.second.start();
         }
     }
@@ -530,7 +1832,11 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
     public void onClick(View v) {
         final int id = v.getId();
         if (id == SF_VIEW_ID) {
-            if (mControlBar.getVisibility() == VISIBLE) {
+            if (mControlBar == null) {
+                if (ensureControls()) {
+                    startAutoHideControlBarTask();
+                }
+            } else if (mControlBar.getVisibility() == VISIBLE) {
                 hideControlBar();
             } else {
                 showControlBar();
@@ -541,6 +1847,9 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
     }
 
     private void play() {
+        if (mDecoderBudget != null) {
+            mDecoderBudget.touch(this);
+        }
         mPlayer.start();
         refreshViewInPlay();
         mIsPlaying = true;
@@ -550,40 +1859,34 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
     }
 
     private void cancelAutoHideControlBarTask() {
-        if (mTimer != null) {
-            mTimer.cancel();
+        if (mAutoHideControlBarToken != null) {
+            mAutoHideControlBarToken.cancel();
+            mAutoHideControlBarToken = null;
         }
     }
 
     private void startAutoHideControlBarTask() {
-        if (mPlayer.isPlaying() && mControlBar.getVisibility() == VISIBLE) {
+        if (mPlayer.isPlaying() && mControlBar != null &&
+                mControlBar.getVisibility() == VISIBLE) {
             mCanHideControlBar = true;
-            mTimer = new Timer();
-            mTimer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    mHandler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (mCanHideControlBar) {
-                                mTimer = null;
-                                hideControlBar();
-                            }
-                        }
-                    });
-                }
-            }, 3000);
+            cancelAutoHideControlBarTask();
+            mAutoHideControlBarToken = UiScheduler.getInstance().schedule(
+                    mAutoHideControlBarTask, AUTO_HIDE_CONTROL_BAR_DELAY);
         }
     }
 
     private void refreshViewInPlay() {
         startListenProgress();
+        if (mControlBar == null) {
+            return;
+        }
         mStateBtn.setImageResource(R.drawable.pause_video_player);
         hidePlayBtn();
     }
 
     private void pause() {
         mCanHideControlBar = false;
+        savePosition();
         mPlayer.pause();
         refreshViewInPause();
         mIsPlaying = false;
@@ -591,6 +1894,9 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
 
     private void refreshViewInPause() {
         stopListenProgress();
+        if (mControlBar == null) {
+            return;
+        }
         mStateBtn.setImageResource(R.drawable.play_video_player);
         showPlayBtn();
     }
@@ -599,91 +1905,296 @@ public class VideoPlayer extends ViewGroup implements SurfaceHolder.Callback,
         if (TextUtils.isEmpty(mDataSource) || !mCanPlay) {
             return;
         }
+        if (mRecoveryToken != null) {
+            cancelRecovery();
+            recover();
+            return;
+        }
         if (mIsPlaying) {
             pause();
         } else {
+            mIsAutoplayAllowed = true;
+            mIsSuspended = false;
             if (mIsNewVideo) {
                 prepareNewVideo();
                 return;
             } else if (mIsPlayFinished) {
-                prepareOldVideo();
+                if (!mPlayer.isPrepared()) {
+                    prepareOldVideo();
+                    return;
+                }
+                seekTo(0);
             }
             play();
         }
     }
 
     private void showLoading() {
-        mProgressBar.setVisibility(View.VISIBLE);
+        if (mProgressBar != null) {
+            mProgressBar.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /**
+     * A frame of the video rendered. The engine reports the first one only from API 17 on, so
+     * it is also inferred from a texture update or the position advancing.
+     */
+    private void onFrameRendered() {
+        mPlaybackStats.markFirstFrame();
+        if (mIsFrameRendered) {
+            return;
+        }
+        mIsFrameRendered = true;
+        if (mPosterLoader != null) {
+            mPosterLoader.cancel();
+        }
+        hidePoster();
+    }
+
+    /**
+     * The frame shown is gone, the poster covers this view until the next one renders.
+     */
+    private void invalidateFrame() {
+        mIsFrameRendered = false;
+        loadPoster();
+    }
+
+    /**
+     * Load the poster of the video at the size of this view, the poster shown is hidden until
+     * it is delivered unless it is cached.
+     */
+    private void loadPoster() {
+        if (mIsFrameRendered) {
+            return;
+        }
+        hidePoster();
+        if (mPosterLoader == null) {
+            return;
+        }
+        final String videoUri = getContentUri();
+        if (mPosterUri == null && (!mIsFirstFramePoster || TextUtils.isEmpty(videoUri))) {
+            mPosterLoader.cancel();
+            return;
+        }
+        mPosterLoader.load(mPosterUri, videoUri,
+                mPosterUri == null ? getPlayableDataSource(videoUri) : null,
+                getWidth(), getHeight(), mPosterCallback);
+    }
+
+    private void showPoster(Bitmap poster) {
+        if (mPosterView == null) {
+            mPosterView = new ImageView(getContext());
+            mPosterView.setScaleType(posterScaleTypeOf(mResizeMode));
+            addView(mPosterView, indexOfChild(mRenderView) + 1, VideoPlayer.createLP(
+                    LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        }
+        mPosterView.setImageBitmap(poster);
+        mPosterView.setVisibility(VISIBLE);
+    }
+
+    private void hidePoster() {
+        if (mPosterView != null) {
+            mPosterView.setVisibility(GONE);
+            mPosterView.setImageBitmap(null);
+        }
+    }
+
+    private static ImageView.ScaleType posterScaleTypeOf(int resizeMode) {
+        switch (resizeMode) {
+            case RESIZE_MODE_CONTAIN:
+                return ImageView.ScaleType.FIT_CENTER;
+            case RESIZE_MODE_COVER:
+                return ImageView.ScaleType.CENTER_CROP;
+            default:
+                return ImageView.ScaleType.FIT_XY;
+        }
     }
 
     private void hideLoading() {
-        mProgressBar.setVisibility(View.GONE);
+        if (mProgressBar != null) {
+            mProgressBar.setVisibility(View.GONE);
+        }
     }
 
     private void prepareNewVideo() {
         if (!mAlreadyInitPlayer) {
             return;
         }
-        try {
-            mPlayer.reset();
-            mPlayer.setDataSource(mDataSource);
-            showLoading();
-            mPlayer.prepareAsync();
-        } catch (IOException e) {
-            e.printStackTrace();
+        mIsBuffering = false;
+        mBufferedPercent = 0;
+        cancelRecovery();
+        if (mRecoveryPolicy != null) {
+            mRecoveryPolicy.reset();
+        }
+        mLastPosition = -1;
+        mSwitchPosition = mResumePosition;
+        mResumePosition = -1;
+        if (mSwitchPosition < 0 && mPositionStore != null) {
+            mSwitchPosition = mPositionStore.get(getContentUri());
+        }
+        if (usesRenditions()) {
+            mRenditionIndex = selectRendition();
+            mDataSource = mRenditions.get(mRenditionIndex).getUri();
+        }
+        endSession();
+        mPlaybackStats.reset(mDataSource);
+        if (mThumbnailExtractor != null) {
+            mThumbnailExtractor.close();
+        }
+        if (mDecoderBudget != null) {
+            mDecoderBudget.acquire(this);
+        }
+        showLoading();
+        if (preparePreloadedVideo()) {
+            return;
+        }
+        mPlayer.open(getPlayableDataSource());
+    }
+
+    /**
+     * Remember the position of the opened video, a finished video starts over next time.
+     */
+    private void savePosition() {
+        if (mPositionStore == null || !mAlreadyInitPlayer || mIsNewVideo || !mCanPlay ||
+                !mPlayer.isPrepared()) {
+            return;
+        }
+        if (mIsPlayFinished) {
+            mPositionStore.remove(getContentUri());
+        } else {
+            mPositionStore.put(getContentUri(), mPlayer.getCurrentPosition(),
+                    mPlayer.getDuration());
+        }
+    }
+
+    private void endSession() {
+        if (mPlaybackStats.isStarted() && mOnPlaybackEventListener != null) {
+            mOnPlaybackEventListener.onStats(this, mPlaybackStats);
+        }
+        mPlaybackStats.reset(null);
+    }
+
+    private String getPlayableDataSource() {
+        return getPlayableDataSource(mDataSource);
+    }
+
+    private String getPlayableDataSource(String uri) {
+        if (mDownloadManager != null) {
+            final String localPath = mDownloadManager.getLocalPath(uri);
+            if (localPath != null) {
+                return localPath;
+            }
         }
+        return mCacheProxy == null ? uri : mCacheProxy.getProxyUrl(uri);
+    }
+
+    private boolean preparePreloadedVideo() {
+        return mPreloader != null && mPlayer.openPreloaded(mPreloader, mDataSource);
     }
 
     @Override
-    public void onPrepared(MediaPlayer mp) {
+    public void onPrepared(PlaybackEngine engine) {
         if (mIsNewVideo) {
+            mPlaybackStats.markPrepared();
             hideLoading();
             if (isInvalidVideo()) {
                 showErrorToast();
                 mCanPlay = false;
+                mPlaybackStats.markError(MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                        MediaPlayer.MEDIA_ERROR_UNSUPPORTED);
+                if (mOnPlaybackEventListener != null) {
+                    mOnPlaybackEventListener.onError(this, MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                            MediaPlayer.MEDIA_ERROR_UNSUPPORTED);
+                }
                 return;
             }
-            if (mLayoutSurfaceTask != null) {
-                mLayoutSurfaceTask.run();
+            layoutRenderView(getMeasuredWidth(), getMeasuredHeight());
+            initProgress();
+            openThumbnails();
+            if (mOnPlaybackEventListener != null) {
+                mOnPlaybackEventListener.onLoad(this, mPlayer.getDuration(),
+                        mPlayer.getVideoWidth(), mPlayer.getVideoHeight());
+            }
+            if (mSwitchPosition > 0) {
+                mPlayer.seekTo(mSwitchPosition);
+            }
+            mSwitchPosition = -1;
+            if (mIsAutoplayAllowed) {
+                play();
+            } else {
+                mIsSuspended = true;
+            }
+            if (!mPlaylist.isEmpty()) {
+                prepareNextItem();
             }
+        } else if (mIsPlayFinished) {
+            hideLoading();
             initProgress();
             play();
         }
     }
 
+    /**
+     * Show a thumbnail acquired from the thumbnail cache in the seek preview, the one shown
+     * before is released.
+     */
+    private void setSeekPreviewImage(Bitmap thumbnail) {
+        if (mSeekPreviewImage != null) {
+            mThumbnailCache.release(mSeekPreviewImage);
+        }
+        mSeekPreviewImage = thumbnail;
+        if (mSeekPreview != null) {
+            mSeekPreview.setImageBitmap(thumbnail);
+        }
+    }
+
+    private void openThumbnails() {
+        if (mThumbnailExtractor != null) {
+            final String uri = getThumbnailUri();
+            mThumbnailExtractor.open(uri, getPlayableDataSource(uri),
+                    mPlayer.getDuration(), mThumbnailCallback);
+            if (mControlBar != null) {
+                mThumbnailExtractor.prefetch();
+            }
+        }
+    }
+
     private void prepareOldVideo() {
-        try {
-            mPlayer.prepare();
-            initProgress();
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (mDecoderBudget != null) {
+            mDecoderBudget.acquire(this);
         }
+        showLoading();
+        mPlayer.prepare();
     }
 
     private void initProgress() {
         final int duration = mPlayer.getDuration();
+        mShowHours = TimeFormat.needsHours(duration);
+        mDisplayedSecond = -1;
+        if (mControlBar == null) {
+            return;
+        }
         mProgress.setMax(duration);
-        mTotalTime.setText(getTimeText(duration));
+        final int length = TimeFormat.format(duration, mShowHours, mTotalTimeText);
+        mTotalTime.setText(mTotalTimeText, 0, length);
     }
 
     @Override
-    public boolean onError(MediaPlayer mp, int what, int extra) {
+    public void onError(PlaybackEngine engine, int what, int extra) {
+        mPlaybackStats.markError(what, extra);
+        if (mPlayer.isPlaying()) {
+            mPlayer.pause();
+        }
+        if (scheduleRecovery(what, extra)) {
+            return;
+        }
+        stopListenProgress();
+        hideLoading();
         showErrorToast();
         mCanPlay = false;
-        return true;
-    }
-
-    private static String getTimeText(int milliseconds) {
-        final int seconds = milliseconds / 1000;
-        String min = seconds / 60 + "";
-        if (min.length() == 1) {
-            min = "0" + min;
-        }
-        String sec = seconds % 60 + "";
-        if (sec.length() == 1) {
-            sec = "0" + sec;
+        if (mOnPlaybackEventListener != null) {
+            mOnPlaybackEventListener.onError(this, what, extra);
         }
-        return min + ":" + sec;
     }
 
     private static int generateId() {
@@ -0,0 +1,57 @@
+package com.reactnativevideoplayer.view;
+
+import android.graphics.Matrix;
+import android.graphics.Rect;
+
+/**
+ * Aspect math of the resize modes of {@link VideoPlayer}.
+ */
+
+final class VideoScaling {
+
+    private VideoScaling() {
+    }
+
+    /**
+     * Compute where the video is shown inside its parent, the bounds are centered in the parent
+     * and may exceed it in cover mode.
+     *
+     * @param resizeMode one of the {@code RESIZE_MODE_*} of {@link VideoPlayer}
+     * @param out        receives the bounds, relative to the parent
+     */
+    static void computeBounds(int resizeMode, int parentW, int parentH, int videoW, int videoH,
+                              Rect out) {
+        if (videoW <= 0 || videoH <= 0 || parentW <= 0 || parentH <= 0 ||
+                resizeMode == VideoPlayer.RESIZE_MODE_STRETCH) {
+            out.set(0, 0, parentW, parentH);
+            return;
+        }
+        final float scale = (float) videoH / videoW;
+        final float frameScale = (float) parentH / parentW;
+        final boolean fitWidth = resizeMode == VideoPlayer.RESIZE_MODE_CONTAIN ?
+                frameScale > scale : frameScale <= scale;
+        if (fitWidth) {
+            final int targetH = (int) (parentW * scale);
+            out.set(0, (parentH - targetH) / 2, parentW, (parentH + targetH) / 2);
+        } else {
+            final int targetW = (int) (parentH / scale);
+            out.set((parentW - targetW) / 2, 0, (parentW + targetW) / 2, parentH);
+        }
+    }
+
+    /**
+     * Compute the transform of a view filling its parent, which shows the video in the given
+     * bounds.
+     *
+     * @param bounds bounds computed by {@link #computeBounds}
+     * @param out    receives the transform
+     */
+    static void computeTransform(int parentW, int parentH, Rect bounds, Matrix out) {
+        out.reset();
+        if (parentW <= 0 || parentH <= 0) {
+            return;
+        }
+        out.setScale((float) bounds.width() / parentW, (float) bounds.height() / parentH,
+                parentW / 2F, parentH / 2F);
+    }
+}
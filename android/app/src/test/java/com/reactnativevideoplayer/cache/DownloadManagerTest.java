@@ -0,0 +1,148 @@
+package com.reactnativevideoplayer.cache;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Downloads from a local HTTP server standing in for the video host.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DownloadManagerTest {
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final int CHUNK_COUNT = 11;
+    private static final byte[] VIDEO = new byte[(CHUNK_COUNT - 1) * CHUNK_SIZE + 100];
+    private static final long TIMEOUT = 10000;
+
+    static {
+        for (int i = 0; i < VIDEO.length; i++) {
+            VIDEO[i] = (byte) (i * 31);
+        }
+    }
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private VideoServer mServer;
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new VideoServer(VIDEO);
+        mDirectory = mFolder.newFolder("downloads");
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void fetchesTheChunksWithParallelRanges() throws Exception {
+        mServer.mDelayMs = 50;
+        final DownloadManager manager = new DownloadManager(mDirectory, CHUNK_SIZE, 3);
+
+        final Download download = manager.start(mServer.getUri());
+        awaitState(download, Download.STATE_COMPLETED);
+
+        assertArrayEquals(VIDEO, readFile(download.getFile()));
+        assertEquals(VIDEO.length, download.getDownloadedBytes());
+        assertEquals(download.getFile().getAbsolutePath(), manager.getLocalPath(mServer.getUri()));
+        assertTrue("chunks fetched one at a time", mServer.getMaxInFlight() > 1);
+        // The probe of the first byte, then each chunk once.
+        final ArrayList<Long> starts = getRangeStarts();
+        assertEquals(CHUNK_COUNT + 1, starts.size());
+        final HashSet<Long> chunkStarts = new HashSet<>(starts.subList(1, starts.size()));
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            assertTrue("chunk " + i + " not fetched", chunkStarts.contains((long) i * CHUNK_SIZE));
+        }
+    }
+
+    @Test
+    public void fetchesInOnePieceWithoutRangeSupport() throws Exception {
+        mServer.mServesRanges = false;
+        final DownloadManager manager = new DownloadManager(mDirectory, CHUNK_SIZE, 3);
+
+        final Download download = manager.start(mServer.getUri());
+        awaitState(download, Download.STATE_COMPLETED);
+
+        assertArrayEquals(VIDEO, readFile(download.getFile()));
+        assertEquals("probe and one fetch", 2, mServer.mGetCount.get());
+    }
+
+    @Test
+    public void resumesWithTheMissingChunksAfterAReload() throws Exception {
+        final int savedChunks = 5;
+        mServer.holdFrom(savedChunks * CHUNK_SIZE);
+        final DownloadManager manager = new DownloadManager(mDirectory, CHUNK_SIZE, 1);
+        final Download download = manager.start(mServer.getUri());
+        assertTrue("download stopped before the held chunk", mServer.awaitHeld());
+
+        manager.pause(mServer.getUri());
+        mServer.release();
+        assertEquals(Download.STATE_PAUSED, download.getState());
+
+        final DownloadManager reloaded = new DownloadManager(mDirectory, CHUNK_SIZE, 1);
+        final Download resumed = reloaded.getDownload(mServer.getUri());
+        assertEquals(Download.STATE_PAUSED, resumed.getState());
+        assertEquals(savedChunks * CHUNK_SIZE, resumed.getDownloadedBytes());
+        final int fetchedBefore = getRangeStarts().size();
+
+        reloaded.start(mServer.getUri());
+        awaitState(resumed, Download.STATE_COMPLETED);
+
+        assertArrayEquals(VIDEO, readFile(resumed.getFile()));
+        final ArrayList<Long> starts = getRangeStarts();
+        for (long start : starts.subList(fetchedBefore, starts.size())) {
+            assertTrue("saved chunk at " + start + " fetched again",
+                    start >= savedChunks * CHUNK_SIZE);
+        }
+    }
+
+    private ArrayList<Long> getRangeStarts() {
+        synchronized (mServer.mRangeStarts) {
+            return new ArrayList<>(mServer.mRangeStarts);
+        }
+    }
+
+    private static void awaitState(Download download, int state) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (download.getState() != state) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("state " + download.getState() + ", error " +
+                        download.getError());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        final RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            final byte[] data = new byte[(int) in.length()];
+            in.readFully(data);
+            return data;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.reactnativevideoplayer.cache;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DownloadTest {
+
+    private static final String URI = "http://example.com/video.mp4";
+    private static final int CHUNK_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void splitsTheFileIntoChunks() {
+        final Download download = newDownload();
+        assertFalse(download.hasLength());
+        download.setLength(10500, CHUNK_SIZE);
+
+        assertEquals(11, download.getMissingChunkCount());
+        assertEquals(10000, download.getChunkStart(10));
+        assertEquals(CHUNK_SIZE, download.getChunkLength(9));
+        assertEquals("last chunk", 500, download.getChunkLength(10));
+    }
+
+    @Test
+    public void claimsEachMissingChunkOnce() {
+        final Download download = newDownload();
+        download.setLength(3 * CHUNK_SIZE, CHUNK_SIZE);
+
+        assertEquals(0, download.claimChunk());
+        assertEquals(1, download.claimChunk());
+        assertEquals(2, download.claimChunk());
+        assertEquals(-1, download.claimChunk());
+
+        download.unclaimChunk(1);
+        assertEquals(1, download.claimChunk());
+        download.markChunkDone(0);
+        download.markChunkDone(2);
+        download.unclaimChunk(1);
+        assertEquals(1, download.claimChunk());
+        assertEquals(-1, download.claimChunk());
+    }
+
+    @Test
+    public void countsEachChunkDoneOnce() {
+        final Download download = newDownload();
+        download.setLength(2 * CHUNK_SIZE + 10, CHUNK_SIZE);
+
+        download.markChunkDone(2);
+        download.markChunkDone(2);
+        assertEquals(10, download.getDownloadedBytes());
+        assertEquals(2, download.getMissingChunkCount());
+        assertFalse(download.isComplete());
+
+        download.markChunkDone(0);
+        download.markChunkDone(1);
+        assertEquals(2 * CHUNK_SIZE + 10, download.getDownloadedBytes());
+        assertTrue(download.isComplete());
+    }
+
+    @Test
+    public void dropsTheChunksDoneWhenTheLengthChanges() {
+        final Download download = newDownload();
+        download.setLength(4 * CHUNK_SIZE, CHUNK_SIZE);
+        download.markChunkDone(0);
+
+        download.setLength(4 * CHUNK_SIZE, CHUNK_SIZE);
+        assertEquals("same length keeps the chunks", CHUNK_SIZE, download.getDownloadedBytes());
+
+        download.setLength(5 * CHUNK_SIZE, CHUNK_SIZE);
+        assertEquals(0, download.getDownloadedBytes());
+        assertEquals(5, download.getMissingChunkCount());
+    }
+
+    @Test
+    public void resumesWithTheChunksStillMissing() throws IOException {
+        final Download download = newDownload();
+        download.setLength(9 * CHUNK_SIZE + 1, CHUNK_SIZE);
+        download.markChunkDone(0);
+        download.markChunkDone(8);
+        download.markChunkDone(9);
+        download.save();
+
+        final Download loaded = Download.load(download.getFile(), download.getStateFile());
+
+        assertEquals(URI, loaded.getUri());
+        assertEquals(Download.STATE_PAUSED, loaded.getState());
+        assertEquals(9 * CHUNK_SIZE + 1, loaded.getLength());
+        assertEquals(CHUNK_SIZE + CHUNK_SIZE + 1, loaded.getDownloadedBytes());
+        assertEquals(7, loaded.getMissingChunkCount());
+        for (int i = 1; i < 8; i++) {
+            assertEquals(i, loaded.claimChunk());
+        }
+        assertEquals(-1, loaded.claimChunk());
+    }
+
+    @Test
+    public void loadsACompleteDownloadAsCompleted() throws IOException {
+        final Download download = newDownload();
+        download.setLength(CHUNK_SIZE, CHUNK_SIZE);
+        download.markChunkDone(0);
+        download.save();
+
+        final Download loaded = Download.load(download.getFile(), download.getStateFile());
+
+        assertTrue(loaded.isComplete());
+        assertEquals(Download.STATE_COMPLETED, loaded.getState());
+    }
+
+    @Test
+    public void doesNotSaveARemovedDownload() throws IOException {
+        final Download download = newDownload();
+        download.setLength(CHUNK_SIZE, CHUNK_SIZE);
+        download.markRemoved();
+        download.save();
+
+        assertEquals(Download.STATE_REMOVED, download.getState());
+        assertFalse(download.getStateFile().exists());
+    }
+
+    private Download newDownload() {
+        return new Download(URI, new File(mFolder.getRoot(), "video"),
+                new File(mFolder.getRoot(), "video.state"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.reactnativevideoplayer.cache;
+
+import android.os.Looper;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PositionStoreTest {
+
+    private static final String URI = "http://example.com/video.mp4";
+    private static final int DURATION = 600000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private PositionStore mStore;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mFile = new File(mFolder.getRoot(), "positions");
+        mStore = new PositionStore(mFile, 2, Looper.getMainLooper());
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    @Test
+    public void remembersPositionsInsideTheMargins() {
+        mStore.put(URI, 5000, DURATION);
+        assertEquals(5000, mStore.get(URI));
+        mStore.put(URI, DURATION - 5000, DURATION);
+        assertEquals(DURATION - 5000, mStore.get(URI));
+        assertEquals(-1, mStore.get("http://example.com/other.mp4"));
+    }
+
+    @Test
+    public void forgetsPositionsNearEitherEnd() {
+        mStore.put(URI, 120000, DURATION);
+        mStore.put(URI, 4999, DURATION);
+        assertEquals("near the start", -1, mStore.get(URI));
+
+        mStore.put(URI, 120000, DURATION);
+        mStore.put(URI, DURATION - 4999, DURATION);
+        assertEquals("near the end", -1, mStore.get(URI));
+    }
+
+    @Test
+    public void forgetsPositionsOfShortVideos() {
+        mStore.put(URI, 30000, 60000);
+        assertEquals(30000, mStore.get(URI));
+        mStore.put(URI, 30000, 59999);
+        assertEquals(-1, mStore.get(URI));
+    }
+
+    @Test
+    public void dropsTheLeastRecentlyUsedPosition() {
+        mStore.put("a", 10000, DURATION);
+        mStore.put("b", 20000, DURATION);
+        mStore.get("a");
+        mStore.put("c", 30000, DURATION);
+
+        assertEquals(10000, mStore.get("a"));
+        assertEquals(-1, mStore.get("b"));
+        assertEquals(30000, mStore.get("c"));
+    }
+
+    @Test
+    public void readsThePositionsBackInALaterStore() {
+        mStore.put("a", 10000, DURATION);
+        mStore.put("b", 20000, DURATION);
+        mStore.flush();
+        ShadowLooper.runUiThreadTasks();
+
+        final PositionStore reloaded = new PositionStore(mFile, 2, Looper.getMainLooper());
+        assertEquals("read before the file", -1, reloaded.get("a"));
+        reloaded.put("a", 15000, DURATION);
+        reloaded.remove("b");
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals("changed before the read", 15000, reloaded.get("a"));
+        assertEquals("removed before the read", -1, reloaded.get("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANonPositiveMaxEntries() {
+        new PositionStore(new File(mFolder.getRoot(), "other"), 0);
+    }
+}
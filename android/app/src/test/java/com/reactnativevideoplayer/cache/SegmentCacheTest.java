@@ -0,0 +1,124 @@
+package com.reactnativevideoplayer.cache;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SegmentCacheTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void concurrentWritesOfOneSegmentCommitAWholeSegment() throws Exception {
+        final SegmentCache cache = new SegmentCache(mFolder.getRoot(), SEGMENT_SIZE, 1024 * 1024);
+        final int writerCount = 8;
+        final ArrayList<String> failures = new ArrayList<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ArrayList<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < writerCount; i++) {
+            final byte[] data = segmentOf((byte) i);
+            final Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 200; j++) {
+                        cache.putSegment("key", 0, data, data.length);
+                        final ByteBuffer segment = cache.getSegment("key", 0);
+                        if (segment != null && segment.remaining() != SEGMENT_SIZE) {
+                            synchronized (failures) {
+                                failures.add("segment of " + segment.remaining() + " bytes");
+                            }
+                        }
+                    }
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(new ArrayList<String>(), failures);
+        final ByteBuffer segment = cache.getSegment("key", 0);
+        assertNotNull(segment);
+        assertEquals(SEGMENT_SIZE, segment.remaining());
+        final byte[] bytes = new byte[SEGMENT_SIZE];
+        segment.get(bytes);
+        assertArrayEquals("segment mixes the data of several writers",
+                segmentOf(bytes[0]), bytes);
+        assertEquals(SEGMENT_SIZE, cache.getSize());
+        assertEquals(1, mFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedSegment() {
+        final SegmentCache cache = new SegmentCache(mFolder.getRoot(), SEGMENT_SIZE,
+                3 * SEGMENT_SIZE);
+        final byte[] data = segmentOf((byte) 1);
+        cache.putSegment("key", 0, data, data.length);
+        cache.putSegment("key", 1, data, data.length);
+        cache.putSegment("key", 2, data, data.length);
+        assertNotNull(cache.getSegment("key", 0));
+
+        cache.putSegment("key", 3, data, data.length);
+
+        assertTrue(cache.hasSegment("key", 0));
+        assertFalse(cache.hasSegment("key", 1));
+        assertEquals(3 * SEGMENT_SIZE, cache.getSize());
+    }
+
+    @Test
+    public void readsTheIndexOfAnEarlierCache() throws IOException {
+        final File directory = mFolder.newFolder("cache");
+        final SegmentCache cache = new SegmentCache(directory, SEGMENT_SIZE, 1024 * 1024);
+        final byte[] data = segmentOf((byte) 7);
+        cache.putSegment("key", 5, data, 100);
+        cache.putMeta("key", new SegmentCache.Meta(12345, "video/mp4"));
+        assertTrue(new File(directory, "key.5.1.tmp").createNewFile());
+
+        final SegmentCache reopened = new SegmentCache(directory, SEGMENT_SIZE, 1024 * 1024);
+
+        assertTrue(reopened.hasSegment("key", 5));
+        assertEquals(12345, reopened.getMeta("key").length);
+        assertEquals("video/mp4", reopened.getMeta("key").contentType);
+        assertNull(reopened.getMeta("other"));
+        assertFalse("temp file left behind", new File(directory, "key.5.1.tmp").exists());
+        assertEquals(100 + new File(directory, "key.meta").length(), reopened.getSize());
+    }
+
+    private static byte[] segmentOf(byte value) {
+        final byte[] data = new byte[SEGMENT_SIZE];
+        Arrays.fill(data, value);
+        return data;
+    }
+}
@@ -0,0 +1,82 @@
+package com.reactnativevideoplayer.cache;
+
+import android.graphics.Bitmap;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ThumbnailCacheTest {
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 50;
+
+    /**
+     * Room for two thumbnails.
+     */
+    private final ThumbnailCache mCache = new ThumbnailCache(2 * WIDTH * HEIGHT * 2);
+
+    @Test
+    public void reusesEvictedThumbnails() {
+        final Bitmap first = putThumbnail(0);
+        putThumbnail(1);
+        assertNull(mCache.obtainReusable(WIDTH, HEIGHT));
+
+        putThumbnail(2);
+        assertNull(mCache.get(ThumbnailCache.keyOf("video", 0)));
+        assertNull(mCache.obtainReusable(WIDTH, HEIGHT * 2));
+        assertSame(first, mCache.obtainReusable(WIDTH, HEIGHT));
+        assertNull(mCache.obtainReusable(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void keepsAcquiredThumbnailsUntilReleased() {
+        final Bitmap first = putThumbnail(0);
+        assertSame(first, mCache.acquire(ThumbnailCache.keyOf("video", 0)));
+        assertSame(first, mCache.acquire(ThumbnailCache.keyOf("video", 0)));
+        putThumbnail(1);
+        putThumbnail(2);
+        putThumbnail(3);
+        assertReusableExcludes(first);
+
+        mCache.release(first);
+        assertReusableExcludes(first);
+        mCache.release(first);
+        assertSame(first, mCache.obtainReusable(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void neverReusesPosters() {
+        final Bitmap poster = Bitmap.createBitmap(new int[WIDTH * HEIGHT], WIDTH, HEIGHT,
+                Bitmap.Config.RGB_565);
+        mCache.put(ThumbnailCache.posterKeyOf("video", WIDTH, HEIGHT), poster);
+        putThumbnail(0);
+        putThumbnail(1);
+
+        assertNull(mCache.get(ThumbnailCache.posterKeyOf("video", WIDTH, HEIGHT)));
+        assertNull(mCache.obtainReusable(WIDTH, HEIGHT));
+    }
+
+    private Bitmap putThumbnail(int index) {
+        final Bitmap thumbnail = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.RGB_565);
+        mCache.put(ThumbnailCache.keyOf("video", index), thumbnail);
+        return thumbnail;
+    }
+
+    private void assertReusableExcludes(Bitmap thumbnail) {
+        Bitmap reusable;
+        while ((reusable = mCache.obtainReusable(WIDTH, HEIGHT)) != null) {
+            if (reusable == thumbnail) {
+                throw new AssertionError("held thumbnail reused");
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.reactnativevideoplayer.cache;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Plays the proxy against a local HTTP server standing in for the video host.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class VideoCacheProxyTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+    private static final byte[] VIDEO = new byte[10 * SEGMENT_SIZE + 100];
+
+    static {
+        for (int i = 0; i < VIDEO.length; i++) {
+            VIDEO[i] = (byte) (i * 31);
+        }
+    }
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private VideoServer mServer;
+    private VideoCacheProxy mProxy;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new VideoServer(VIDEO);
+        mProxy = new VideoCacheProxy(
+                new SegmentCache(mFolder.newFolder("cache"), SEGMENT_SIZE, 1024 * 1024));
+        mProxy.start();
+    }
+
+    @After
+    public void tearDown() {
+        mProxy.shutdown();
+        mServer.stop();
+    }
+
+    @Test
+    public void servesRangesAndCachesThem() throws IOException {
+        final String url = mProxy.getProxyUrl(videoUri());
+
+        assertArrayEquals(Arrays.copyOfRange(VIDEO, 1500, 4001), read(url, "bytes=1500-4000"));
+        final int fetches = mServer.mGetCount.get();
+        assertArrayEquals(Arrays.copyOfRange(VIDEO, 1500, 4001), read(url, "bytes=1500-4000"));
+        assertEquals("cached range fetched again", fetches, mServer.mGetCount.get());
+
+        assertArrayEquals(VIDEO, read(url, null));
+        assertArrayEquals(Arrays.copyOfRange(VIDEO, VIDEO.length - 50, VIDEO.length),
+                read(url, "bytes=-50"));
+    }
+
+    @Test
+    public void probesWithRangedGetWhenHeadIsRejected() throws IOException {
+        mServer.mRejectsHead = true;
+        final String url = mProxy.getProxyUrl(videoUri());
+
+        assertArrayEquals(Arrays.copyOfRange(VIDEO, 0, 2048), read(url, "bytes=0-2047"));
+        assertArrayEquals(VIDEO, read(url, null));
+    }
+
+    @Test
+    public void relaysVideosOfUnknownLength() throws IOException {
+        mServer.mRejectsHead = true;
+        mServer.mServesRanges = false;
+        mServer.mIsChunked = true;
+
+        assertArrayEquals(VIDEO, read(mProxy.getProxyUrl(videoUri()), null));
+    }
+
+    @Test
+    public void leavesLocalUrisAlone() {
+        assertEquals("/sdcard/video.mp4", mProxy.getProxyUrl("/sdcard/video.mp4"));
+    }
+
+    @Test
+    public void forbidsRequestsWithoutTheToken() throws IOException {
+        final String url = mProxy.getProxyUrl(videoUri());
+        final String prefix = url.substring(0, url.indexOf('/', "http://".length()) + 1);
+
+        assertEquals(403, status(prefix + URLEncoder.encode(videoUri(), "UTF-8")));
+        assertEquals(403, status(prefix + "0123456789abcdef0123456789abcdef/" +
+                URLEncoder.encode(videoUri(), "UTF-8")));
+        assertEquals(0, mServer.mGetCount.get());
+    }
+
+    @Test
+    public void forbidsUrisOtherThanHttp() throws IOException {
+        final String url = mProxy.getProxyUrl(videoUri());
+        final String tokenPath = url.substring(0, url.lastIndexOf('/') + 1);
+
+        assertEquals(403, status(tokenPath + URLEncoder.encode("file:///etc/hosts", "UTF-8")));
+        assertEquals(200, status(url));
+    }
+
+    private String videoUri() {
+        return mServer.getUri();
+    }
+
+    private static int status(String url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static byte[] read(String url, String range) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+        }
+        try {
+            final InputStream in = connection.getInputStream();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            in.close();
+            return out.toByteArray();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.reactnativevideoplayer.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server standing in for a video host, it serves one video and records the requests.
+ */
+
+final class VideoServer {
+
+    private static final String PATH = "/video.mp4";
+
+    private final byte[] mVideo;
+    private final HttpServer mServer;
+
+    /* Behavior of the server. */
+    volatile boolean mRejectsHead;
+    volatile boolean mServesRanges = true;
+    volatile boolean mIsChunked;
+
+    /**
+     * Delay of each response, so parallel requests overlap.
+     */
+    volatile int mDelayMs;
+
+    final AtomicInteger mGetCount = new AtomicInteger();
+
+    /**
+     * Start offsets of the ranged GET requests, in order.
+     */
+    final List<Long> mRangeStarts = new ArrayList<>();
+    private int mInFlight;
+    private int mMaxInFlight;
+
+    private volatile long mHoldFrom = -1;
+    private final CountDownLatch mHeld = new CountDownLatch(1);
+    private final CountDownLatch mReleased = new CountDownLatch(1);
+
+    VideoServer(byte[] video) throws IOException {
+        this.mVideo = video;
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                enter();
+                try {
+                    serve(exchange);
+                } finally {
+                    exit();
+                }
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    String getUri() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + PATH;
+    }
+
+    void stop() {
+        mReleased.countDown();
+        mServer.stop(0);
+    }
+
+    synchronized int getMaxInFlight() {
+        return mMaxInFlight;
+    }
+
+    private synchronized void enter() {
+        mInFlight++;
+        mMaxInFlight = Math.max(mMaxInFlight, mInFlight);
+    }
+
+    private synchronized void exit() {
+        mInFlight--;
+    }
+
+    /**
+     * Hold the ranged requests starting at or after an offset until {@link #release}.
+     */
+    void holdFrom(long start) {
+        mHoldFrom = start;
+    }
+
+    boolean awaitHeld() throws InterruptedException {
+        return mHeld.await(10, TimeUnit.SECONDS);
+    }
+
+    void release() {
+        mReleased.countDown();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        final boolean isHead = "HEAD".equals(exchange.getRequestMethod());
+        if (isHead && mRejectsHead) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        if (!isHead) {
+            mGetCount.incrementAndGet();
+        }
+        int start = 0;
+        int end = mVideo.length - 1;
+        final String range = exchange.getRequestHeaders().getFirst("Range");
+        final boolean isPartial = range != null && mServesRanges;
+        if (isPartial) {
+            final String[] bounds = range.substring("bytes=".length()).split("-");
+            start = Integer.parseInt(bounds[0]);
+            end = Math.min(end, Integer.parseInt(bounds[1]));
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + start + "-" + end + "/" + (mIsChunked ? "*" : mVideo.length));
+            if (!isHead) {
+                synchronized (mRangeStarts) {
+                    mRangeStarts.add((long) start);
+                }
+            }
+        }
+        awaitTurn(isPartial && !isHead ? start : -1);
+        exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+        final int length = end - start + 1;
+        if (isHead && !mIsChunked) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+        }
+        exchange.sendResponseHeaders(isPartial ? 206 : 200,
+                isHead ? -1 : (mIsChunked ? 0 : length));
+        if (!isHead) {
+            final OutputStream out = exchange.getResponseBody();
+            try {
+                out.write(mVideo, start, length);
+                out.close();
+            } catch (IOException ignored) {
+                // the client stopped reading
+            }
+        }
+        exchange.close();
+    }
+
+    private void awaitTurn(long rangeStart) {
+        try {
+            if (mHoldFrom >= 0 && rangeStart >= mHoldFrom) {
+                mHeld.countDown();
+                mReleased.await(10, TimeUnit.SECONDS);
+            }
+            if (mDelayMs > 0) {
+                Thread.sleep(mDelayMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.reactnativevideoplayer.player;
+
+import android.media.MediaPlayer;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowMediaPlayer;
+import org.robolectric.shadows.util.DataSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Drives a controller over a shadow MediaPlayer. Robolectric does not run the player-control
+ * thread by itself, the test runs its commands in turn with the main looper.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PlayerControllerTest {
+
+    private static final String URI = "http://example.com/video.mp4";
+    private static final int DURATION = 600000;
+    private static final int SEEK_DELAY = 100;
+
+    /**
+     * Counts the callbacks of the controller.
+     */
+    private static final class CountingCallback implements PlaybackEngine.Callback {
+
+        int mPreparedCount;
+        int mSeekCompleteCount;
+
+        @Override
+        public void onPrepared(PlaybackEngine engine) {
+            mPreparedCount++;
+        }
+
+        @Override
+        public void onCompletion(PlaybackEngine engine) {
+        }
+
+        @Override
+        public void onBufferingUpdate(PlaybackEngine engine, int percent) {
+        }
+
+        @Override
+        public void onInfo(PlaybackEngine engine, int what, int extra) {
+        }
+
+        @Override
+        public void onSeekComplete(PlaybackEngine engine) {
+            mSeekCompleteCount++;
+        }
+
+        @Override
+        public void onTransition(PlaybackEngine engine) {
+        }
+
+        @Override
+        public void onError(PlaybackEngine engine, int what, int extra) {
+        }
+    }
+
+    private final CountingCallback mCallback = new CountingCallback();
+    private ShadowLooper mPlayerLooper;
+    private ShadowMediaPlayer mShadowPlayer;
+    private PlayerController mController;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        ShadowMediaPlayer.addMediaInfo(DataSource.toDataSource(URI),
+                new ShadowMediaPlayer.MediaInfo(DURATION, 0));
+        ShadowMediaPlayer.setCreateListener(new ShadowMediaPlayer.CreateListener() {
+            @Override
+            public void onCreate(MediaPlayer player, ShadowMediaPlayer shadow) {
+                shadow.setSeekDelay(SEEK_DELAY);
+                mShadowPlayer = shadow;
+            }
+        });
+        mPlayerLooper = Shadows.shadowOf(PlayerThread.getHandler().getLooper());
+        mController = new PlayerController(new MediaPlayerPool(1), mCallback);
+        mController.open(URI);
+        runTasks();
+        assertEquals(1, mCallback.mPreparedCount);
+    }
+
+    @Test
+    public void coalescesTheSeeksIssuedBeforeTheFirstCompletes() {
+        final ArrayList<Integer> issued = new ArrayList<>();
+        mController.seekTo(10000);
+        mController.seekTo(20000);
+        mController.seekTo(30000);
+        mController.seekTo(40000);
+        assertEquals("target of a seek in flight", 40000, mController.getCurrentPosition());
+
+        mPlayerLooper.runToEndOfTasks();
+        issued.add(mShadowPlayer.getPendingSeek());
+        ShadowLooper.idleMainLooper(SEEK_DELAY);
+        assertEquals("first seek reported", 0, mCallback.mSeekCompleteCount);
+
+        mPlayerLooper.runToEndOfTasks();
+        issued.add(mShadowPlayer.getPendingSeek());
+        ShadowLooper.idleMainLooper(SEEK_DELAY);
+        runTasks();
+
+        assertEquals(Arrays.asList(10000, 40000), issued);
+        assertEquals(1, mCallback.mSeekCompleteCount);
+        assertEquals(40000, mShadowPlayer.getCurrentPosition());
+        assertEquals(40000, mController.getCurrentPosition());
+    }
+
+    @Test
+    public void reportsASingleSeekOnce() {
+        mController.seekTo(15000);
+        runTasks();
+
+        assertEquals(1, mCallback.mSeekCompleteCount);
+        assertEquals(15000, mController.getCurrentPosition());
+    }
+
+    /**
+     * Run the commands of the player-control thread and the callbacks they post, until both
+     * loopers are idle.
+     */
+    private void runTasks() {
+        for (int i = 0; i < 10; i++) {
+            mPlayerLooper.runToEndOfTasks();
+            ShadowLooper.idleMainLooper(SEEK_DELAY);
+        }
+    }
+}
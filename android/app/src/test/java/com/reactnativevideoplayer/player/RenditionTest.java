@@ -0,0 +1,71 @@
+package com.reactnativevideoplayer.player;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RenditionTest {
+
+    private static final Rendition LOW = new Rendition("low.mp4", 500000, 640, 360);
+    private static final Rendition MEDIUM = new Rendition("medium.mp4", 1500000, 1280, 720);
+    private static final Rendition HIGH = new Rendition("high.mp4", 4000000, 1920, 1080);
+
+    private static final List<Rendition> RENDITIONS = Arrays.asList(LOW, MEDIUM, HIGH);
+
+    @Test
+    public void ordersByBitrate() {
+        final ArrayList<Rendition> renditions = new ArrayList<>(Arrays.asList(HIGH, LOW, MEDIUM));
+        Collections.sort(renditions, Rendition.BY_BITRATE);
+        assertEquals(RENDITIONS, renditions);
+    }
+
+    @Test
+    public void selectsTheHighestSustainedRendition() {
+        assertEquals(1, Rendition.select(RENDITIONS, 3000000, 1920, 1080));
+        // Only three quarters of the bandwidth may be taken.
+        assertEquals(1, Rendition.select(RENDITIONS, 4000000, 1920, 1080));
+        assertEquals(2, Rendition.select(RENDITIONS, 6000000, 1920, 1080));
+    }
+
+    @Test
+    public void skipsRenditionsLargerThanTheView() {
+        assertEquals(1, Rendition.select(RENDITIONS, 10000000, 1280, 720));
+        assertEquals(0, Rendition.select(RENDITIONS, 10000000, 1000, 1000));
+    }
+
+    @Test
+    public void fallsBackToTheLowestRendition() {
+        assertEquals("lowest fitting when none is sustained",
+                0, Rendition.select(RENDITIONS, 100000, 1920, 1080));
+        assertEquals("lowest when none fits", 0, Rendition.select(RENDITIONS, 10000000, 320, 180));
+    }
+
+    @Test
+    public void unknownSizesFitAnyView() {
+        assertEquals(2, Rendition.select(RENDITIONS, 10000000, 0, 0));
+        final List<Rendition> unsized = Arrays.asList(LOW, new Rendition("any.mp4", 2000000, 0, 0));
+        assertEquals(1, Rendition.select(unsized, 10000000, 320, 180));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnEmptyUri() {
+        new Rendition("", 500000, 640, 360);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANonPositiveBitrate() {
+        new Rendition("low.mp4", 0, 640, 360);
+    }
+}
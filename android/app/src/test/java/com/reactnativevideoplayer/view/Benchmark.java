@@ -0,0 +1,94 @@
+package com.reactnativevideoplayer.view;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Times an operation and counts the bytes it allocates on the calling thread, for the per-frame
+ * and per-tick paths which should not allocate at all.
+ * <p>
+ * Under Robolectric the numbers include the shadows of the framework classes, compare them
+ * between runs rather than with a device.
+ */
+
+final class Benchmark {
+
+    /**
+     * Rounds run before measuring, so the JIT has compiled the operation.
+     */
+    private static final int WARMUP_ROUNDS = 2;
+
+    /**
+     * Cost of one call of an operation.
+     */
+    static final class Result {
+
+        final long mNanosPerOp;
+
+        /**
+         * Bytes allocated per call, or -1 if the JVM does not count allocations.
+         */
+        final long mBytesPerOp;
+
+        Result(long nanosPerOp, long bytesPerOp) {
+            this.mNanosPerOp = nanosPerOp;
+            this.mBytesPerOp = bytesPerOp;
+        }
+
+        /**
+         * Fail if the operation allocates, skip the test on a JVM which does not count
+         * allocations.
+         */
+        void assertNoAllocations() {
+            Assume.assumeTrue("allocations not counted", mBytesPerOp >= 0);
+            if (mBytesPerOp > 0) {
+                throw new AssertionError("allocates " + mBytesPerOp + " bytes per call");
+            }
+        }
+    }
+
+    private Benchmark() {
+    }
+
+    /**
+     * @param name       shown with the result
+     * @param iterations count of measured calls, large enough that measuring costs nothing
+     * @param op         operation to measure, changing its input between calls
+     */
+    static Result run(String name, int iterations, Runnable op) {
+        for (int i = 0; i < WARMUP_ROUNDS * iterations; i++) {
+            op.run();
+        }
+        final long startBytes = getAllocatedBytes();
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        final long elapsed = System.nanoTime() - startTime;
+        final long endBytes = getAllocatedBytes();
+        final Result result = new Result(elapsed / iterations,
+                startBytes < 0 ? -1 : (endBytes - startBytes) / iterations);
+        System.out.println(String.format(Locale.US, "%s: %d ns/op, %d B/op", name,
+                result.mNanosPerOp, result.mBytesPerOp));
+        return result;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if they are not counted
+     */
+    private static long getAllocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported() ||
+                !sunBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,184 @@
+package com.reactnativevideoplayer.view;
+
+import android.view.Surface;
+
+import com.reactnativevideoplayer.player.MediaPreloader;
+import com.reactnativevideoplayer.player.PlaybackEngine;
+
+/**
+ * Engine which only records the commands it gets, the test drives its callbacks.
+ */
+
+final class FakePlaybackEngine implements PlaybackEngine {
+
+    /**
+     * Creates fake engines, keeping the latest one.
+     */
+    static final class Factory implements PlaybackEngine.Factory {
+
+        FakePlaybackEngine mEngine;
+        boolean mTakesPreloaded;
+
+        @Override
+        public PlaybackEngine create(Callback callback) {
+            mEngine = new FakePlaybackEngine(callback);
+            mEngine.mTakesPreloaded = mTakesPreloaded;
+            return mEngine;
+        }
+    }
+
+    private Callback mCallback;
+    private int mState = STATE_IDLE;
+    private int mDuration;
+    private int mVideoWidth;
+    private int mVideoHeight;
+    private int mPosition;
+
+    boolean mTakesPreloaded;
+    String mOpenedUri;
+    String mPreloadedUri;
+    String mNextUri;
+    Surface mSurface;
+    boolean mIsLooping;
+
+    /**
+     * Target of the latest seek, or -1.
+     */
+    int mSeekTarget = -1;
+
+    FakePlaybackEngine(Callback callback) {
+        this.mCallback = callback;
+    }
+
+    /**
+     * Finish preparing the opened video.
+     */
+    void prepared(int duration, int videoWidth, int videoHeight) {
+        mDuration = duration;
+        mVideoWidth = videoWidth;
+        mVideoHeight = videoHeight;
+        mPosition = 0;
+        mState = STATE_PREPARED;
+        mCallback.onPrepared(this);
+    }
+
+    void advanceTo(int position) {
+        mPosition = position;
+    }
+
+    /**
+     * Fail the way a MediaPlayer reports an error.
+     */
+    void error(int what, int extra) {
+        mState = STATE_ERROR;
+        mCallback.onError(this, what, extra);
+    }
+
+    @Override
+    public void setSurface(Surface surface) {
+        mSurface = surface;
+    }
+
+    @Override
+    public void setLooping(boolean looping) {
+        mIsLooping = looping;
+    }
+
+    @Override
+    public void open(String uri) {
+        mOpenedUri = uri;
+        mState = STATE_PREPARING;
+    }
+
+    @Override
+    public boolean openPreloaded(MediaPreloader preloader, String uri) {
+        if (!mTakesPreloaded) {
+            return false;
+        }
+        mPreloadedUri = uri;
+        mState = STATE_PREPARING;
+        return true;
+    }
+
+    @Override
+    public void prepareNext(String uri) {
+        mNextUri = uri;
+    }
+
+    @Override
+    public void prepare() {
+        mState = STATE_PREPARING;
+    }
+
+    @Override
+    public void start() {
+        if (isPrepared()) {
+            mState = STATE_STARTED;
+        }
+    }
+
+    @Override
+    public void pause() {
+        if (mState == STATE_STARTED) {
+            mState = STATE_PAUSED;
+        }
+    }
+
+    @Override
+    public void seekTo(int msec) {
+        if (isPrepared()) {
+            mPosition = msec;
+            mSeekTarget = msec;
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (isPrepared()) {
+            mState = STATE_STOPPED;
+            mPosition = 0;
+        }
+    }
+
+    @Override
+    public void release() {
+        mState = STATE_RELEASED;
+        mCallback = null;
+    }
+
+    @Override
+    public int getState() {
+        return mState;
+    }
+
+    @Override
+    public boolean isPrepared() {
+        return mState == STATE_PREPARED || mState == STATE_STARTED || mState == STATE_PAUSED ||
+                mState == STATE_COMPLETED;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mState == STATE_STARTED;
+    }
+
+    @Override
+    public int getDuration() {
+        return mDuration;
+    }
+
+    @Override
+    public int getVideoWidth() {
+        return mVideoWidth;
+    }
+
+    @Override
+    public int getVideoHeight() {
+        return mVideoHeight;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return mPosition;
+    }
+}
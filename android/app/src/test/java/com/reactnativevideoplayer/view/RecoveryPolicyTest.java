@@ -0,0 +1,81 @@
+package com.reactnativevideoplayer.view;
+
+import android.media.MediaPlayer;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RecoveryPolicyTest {
+
+    @Test
+    public void doublesTheDelayUpToTheMax() {
+        final RecoveryPolicy policy = new RecoveryPolicy();
+        assertEquals(1000, policy.nextDelay());
+        assertEquals(2000, policy.nextDelay());
+        assertEquals(4000, policy.nextDelay());
+        assertEquals(8000, policy.nextDelay());
+        assertEquals(16000, policy.nextDelay());
+        assertEquals(RecoveryPolicy.DEFAULT_MAX_RETRIES, policy.getRetryCount());
+    }
+
+    @Test
+    public void givesUpAfterTheMaxRetries() {
+        final RecoveryPolicy policy = new RecoveryPolicy(2, 500, 10000);
+        assertEquals(500, policy.nextDelay());
+        assertEquals(1000, policy.nextDelay());
+        assertEquals(-1, policy.nextDelay());
+        assertEquals(-1, policy.nextDelay());
+        assertEquals(2, policy.getRetryCount());
+    }
+
+    @Test
+    public void startsOverAfterAReset() {
+        final RecoveryPolicy policy = new RecoveryPolicy(2, 500, 10000);
+        policy.nextDelay();
+        policy.nextDelay();
+        policy.reset();
+        assertEquals(0, policy.getRetryCount());
+        assertEquals(500, policy.nextDelay());
+    }
+
+    @Test
+    public void neverOverflowsTheDelay() {
+        final RecoveryPolicy policy = new RecoveryPolicy(40, 1000, Integer.MAX_VALUE);
+        int delay = 0;
+        for (int i = 0; i < 40; i++) {
+            delay = policy.nextDelay();
+            assertTrue("negative delay at retry " + i, delay > 0);
+        }
+        assertEquals(Integer.MAX_VALUE, delay);
+    }
+
+    @Test
+    public void retriesOnlyTransientErrors() {
+        assertTrue(RecoveryPolicy.isTransient(MediaPlayer.MEDIA_ERROR_SERVER_DIED, 0));
+        assertTrue(RecoveryPolicy.isTransient(MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                MediaPlayer.MEDIA_ERROR_IO));
+        assertTrue(RecoveryPolicy.isTransient(MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                MediaPlayer.MEDIA_ERROR_TIMED_OUT));
+        assertTrue(RecoveryPolicy.isTransient(MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                Integer.MIN_VALUE));
+        assertFalse(RecoveryPolicy.isTransient(MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                MediaPlayer.MEDIA_ERROR_UNSUPPORTED));
+        assertFalse(RecoveryPolicy.isTransient(MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                MediaPlayer.MEDIA_ERROR_MALFORMED));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAMaxDelayBelowTheBaseDelay() {
+        new RecoveryPolicy(1, 1000, 500);
+    }
+}
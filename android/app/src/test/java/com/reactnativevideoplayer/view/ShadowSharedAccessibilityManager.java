@@ -0,0 +1,30 @@
+package com.reactnativevideoplayer.view;
+
+import android.content.Context;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+/**
+ * Shares one manager per application like the framework does. The Robolectric shadow creates a
+ * new one on every call, each registering observers which are never removed, so every progress
+ * or text update of a widget gets slower than the one before.
+ */
+@Implements(AccessibilityManager.class)
+public class ShadowSharedAccessibilityManager extends ShadowAccessibilityManager {
+
+    private static Context sContext;
+    private static AccessibilityManager sInstance;
+
+    @Implementation
+    public static AccessibilityManager getInstance(Context context) throws Exception {
+        if (sContext != RuntimeEnvironment.application) {
+            sContext = RuntimeEnvironment.application;
+            sInstance = ShadowAccessibilityManager.getInstance(context);
+        }
+        return sInstance;
+    }
+}
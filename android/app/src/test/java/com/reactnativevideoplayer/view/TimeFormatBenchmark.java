@@ -0,0 +1,41 @@
+package com.reactnativevideoplayer.view;
+
+import org.junit.Test;
+
+/**
+ * The play time is formatted on every tick and scrub step. TimeFormat has no framework
+ * dependency, so this runs on the plain JUnit runner.
+ */
+public class TimeFormatBenchmark {
+
+    private static final int ITERATIONS = 200000;
+    private static final int HOUR = 60 * 60 * 1000;
+
+    @Test
+    public void formatMinutes() {
+        Benchmark.run("TimeFormat.format mm:ss", ITERATIONS, new Runnable() {
+            private final char[] mText = new char[TimeFormat.BUFFER_LENGTH];
+            private int mTime;
+
+            @Override
+            public void run() {
+                mTime = (mTime + 1000) % HOUR;
+                TimeFormat.format(mTime, false, mText);
+            }
+        }).assertNoAllocations();
+    }
+
+    @Test
+    public void formatHours() {
+        Benchmark.run("TimeFormat.format h:mm:ss", ITERATIONS, new Runnable() {
+            private final char[] mText = new char[TimeFormat.BUFFER_LENGTH];
+            private int mTime;
+
+            @Override
+            public void run() {
+                mTime = (mTime + 1000) & Integer.MAX_VALUE;
+                TimeFormat.format(mTime, true, mText);
+            }
+        }).assertNoAllocations();
+    }
+}
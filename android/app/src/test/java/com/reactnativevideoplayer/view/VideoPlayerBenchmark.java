@@ -0,0 +1,139 @@
+package com.reactnativevideoplayer.view;
+
+import android.app.Activity;
+import android.view.SurfaceView;
+import android.view.View;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ActivityController;
+import org.robolectric.util.ReflectionHelpers;
+
+/**
+ * Measures the layout passes and the progress ticks of a playing view, with its controls shown.
+ * The widgets allocate for themselves, so the numbers are only reported and compared between
+ * runs.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21,
+        shadows = ShadowSharedAccessibilityManager.class)
+public class VideoPlayerBenchmark {
+
+    private static final String URI = "http://example.com/video.mp4";
+    private static final int DURATION = 600000;
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 1920;
+    private static final int ITERATIONS = 2000;
+
+    /**
+     * Playback advance between two ticks.
+     */
+    private static final int FRAME_INTERVAL = 16;
+
+    private final FakePlaybackEngine.Factory mFactory = new FakePlaybackEngine.Factory();
+    private VideoPlayer mView;
+
+    @Before
+    public void setUp() {
+        final ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class)
+                .create();
+        mView = new VideoPlayer(controller.get());
+        mView.setEngineFactory(mFactory);
+        mView.setUrl(URI);
+        mView.enableAuto();
+        controller.get().setContentView(mView);
+        controller.start().resume().visible();
+        // The progress ticker reposts itself every frame.
+        ShadowLooper.pauseMainLooper();
+        showOnScreen();
+
+        mView.surfaceCreated(((SurfaceView) mView.getChildAt(0)).getHolder());
+        mFactory.mEngine.prepared(DURATION, 1280, 720);
+        mView.setOnPlaybackEventListener(new EmptyPlaybackEventListener());
+    }
+
+    @Test
+    public void measureAndLayout() {
+        final int widthSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH,
+                View.MeasureSpec.EXACTLY);
+        final int heightSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH * 9 / 16,
+                View.MeasureSpec.AT_MOST);
+        Benchmark.run("VideoPlayer measure and layout", ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                mView.forceLayout();
+                mView.measure(widthSpec, heightSpec);
+                mView.layout(0, 0, mView.getMeasuredWidth(), mView.getMeasuredHeight());
+            }
+        });
+    }
+
+    /**
+     * The position reaches the view through the player-control thread, as on a device.
+     */
+    @Test
+    public void tick() {
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        Benchmark.run("VideoPlayer tick", ITERATIONS, new Runnable() {
+            private int mPosition;
+
+            @Override
+            public void run() {
+                mPosition = (mPosition + FRAME_INTERVAL) % DURATION;
+                engine.advanceTo(mPosition);
+                mView.onTick();
+            }
+        });
+    }
+
+    /**
+     * Robolectric neither lays out the window nor makes it visible, do both so the view
+     * updates its controls on each tick.
+     */
+    private void showOnScreen() {
+        final View root = mView.getRootView();
+        root.measure(View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.EXACTLY));
+        root.layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+        final Object viewRoot = root.getParent();
+        ReflectionHelpers.setField(viewRoot, "mWidth", SCREEN_WIDTH);
+        ReflectionHelpers.setField(viewRoot, "mHeight", SCREEN_HEIGHT);
+        ReflectionHelpers.setField(ReflectionHelpers.getField(mView, "mAttachInfo"),
+                "mWindowVisibility", View.VISIBLE);
+    }
+
+    private static final class EmptyPlaybackEventListener
+            implements VideoPlayer.OnPlaybackEventListener {
+
+        @Override
+        public void onLoad(VideoPlayer player, int duration, int videoWidth, int videoHeight) {
+        }
+
+        @Override
+        public void onProgress(VideoPlayer player, int currentPosition, int duration) {
+        }
+
+        @Override
+        public void onBuffer(VideoPlayer player, boolean isBuffering, int bufferedPercent) {
+        }
+
+        @Override
+        public void onEnd(VideoPlayer player) {
+        }
+
+        @Override
+        public void onError(VideoPlayer player, int what, int extra) {
+        }
+
+        @Override
+        public void onStats(VideoPlayer player, PlaybackStats stats) {
+        }
+    }
+}
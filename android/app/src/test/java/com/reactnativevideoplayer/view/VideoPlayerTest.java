@@ -0,0 +1,295 @@
+package com.reactnativevideoplayer.view;
+
+import android.graphics.SurfaceTexture;
+import android.media.MediaPlayer;
+import android.view.SurfaceView;
+import android.view.View;
+
+import com.reactnativevideoplayer.BuildConfig;
+import com.reactnativevideoplayer.R;
+import com.reactnativevideoplayer.player.MediaPlayerPool;
+import com.reactnativevideoplayer.player.MediaPreloader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a view through {@link FakePlaybackEngine} instead of a MediaPlayer.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class VideoPlayerTest {
+
+    private static final String URI = "http://example.com/video.mp4";
+
+    /* Stall detection of VideoPlayer. */
+    private static final int STALL_CHECK_INTERVAL = 1000;
+    private static final int STALL_TIMEOUT = 10000;
+
+    /**
+     * Records the errors reported to the app.
+     */
+    private static final class ErrorListener implements VideoPlayer.OnPlaybackEventListener {
+
+        int mErrorCount;
+        int mWhat;
+        int mExtra;
+
+        @Override
+        public void onLoad(VideoPlayer player, int duration, int videoWidth, int videoHeight) {
+        }
+
+        @Override
+        public void onProgress(VideoPlayer player, int currentPosition, int duration) {
+        }
+
+        @Override
+        public void onBuffer(VideoPlayer player, boolean isBuffering, int bufferedPercent) {
+        }
+
+        @Override
+        public void onEnd(VideoPlayer player) {
+        }
+
+        @Override
+        public void onError(VideoPlayer player, int what, int extra) {
+            mErrorCount++;
+            mWhat = what;
+            mExtra = extra;
+        }
+
+        @Override
+        public void onStats(VideoPlayer player, PlaybackStats stats) {
+        }
+    }
+
+    private final FakePlaybackEngine.Factory mFactory = new FakePlaybackEngine.Factory();
+    private final FakePlaybackEngine.Factory mTargetFactory = new FakePlaybackEngine.Factory();
+    private final ErrorListener mListener = new ErrorListener();
+    private VideoPlayer mView;
+
+    /**
+     * View taking the video over from {@link #mView}, or null.
+     */
+    private VideoPlayer mTarget;
+
+    @Before
+    public void setUp() {
+        // The progress ticker reposts itself every frame.
+        ShadowLooper.pauseMainLooper();
+        mView = new VideoPlayer(RuntimeEnvironment.application);
+        mView.setControlsMode(VideoPlayer.CONTROLS_MODE_NONE);
+        mView.setEngineFactory(mFactory);
+        mView.setUrl(URI);
+        mView.enableAuto();
+        mView.setOnPlaybackEventListener(mListener);
+    }
+
+    @After
+    public void tearDown() {
+        ProgressTicker.getInstance().unregister(mView);
+        if (mTarget != null) {
+            ProgressTicker.getInstance().unregister(mTarget);
+        }
+    }
+
+    @Test
+    public void opensAndPlaysTheVideoOnTheEngine() {
+        attachSurface();
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        assertEquals(URI, engine.mOpenedUri);
+        assertFalse(engine.isPlaying());
+
+        engine.prepared(60000, 640, 360);
+        assertTrue(engine.isPlaying());
+        assertEquals(URI, mView.getPlaybackStats().getUri());
+    }
+
+    @Test
+    public void takesPreloadedVideosThroughTheEngine() {
+        mFactory.mTakesPreloaded = true;
+        mView.setPreloader(new MediaPreloader(MediaPlayerPool.getDefault(), 1));
+        attachSurface();
+
+        assertEquals(URI, mFactory.mEngine.mPreloadedUri);
+        assertNull(mFactory.mEngine.mOpenedUri);
+    }
+
+    @Test
+    public void opensVideosTheEngineDidNotTakeOver() {
+        mView.setPreloader(new MediaPreloader(MediaPlayerPool.getDefault(), 1));
+        attachSurface();
+
+        assertNull(mFactory.mEngine.mPreloadedUri);
+        assertEquals(URI, mFactory.mEngine.mOpenedUri);
+    }
+
+    @Test
+    public void reopensAStalledVideoAtTheLastPosition() {
+        attachSurface();
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        engine.prepared(600000, 640, 360);
+        stopTicker(mView);
+        engine.advanceTo(5000);
+        ShadowLooper.idleMainLooper(STALL_CHECK_INTERVAL);
+        engine.mOpenedUri = null;
+
+        ShadowLooper.idleMainLooper(STALL_TIMEOUT - STALL_CHECK_INTERVAL / 2);
+        assertNull("reopened before the stall timeout", engine.mOpenedUri);
+        // The stall check fails at the timeout, the recovery runs after the first backoff.
+        ShadowLooper.idleMainLooper(STALL_CHECK_INTERVAL + RecoveryPolicy.DEFAULT_BASE_DELAY);
+        assertEquals(URI, engine.mOpenedUri);
+        assertFalse(engine.isPlaying());
+
+        engine.prepared(600000, 640, 360);
+        assertEquals(5000, engine.getCurrentPosition());
+        assertTrue(engine.isPlaying());
+        assertEquals("retried failure reported", 0, mListener.mErrorCount);
+    }
+
+    @Test
+    public void retriesATransientErrorAtTheLastPosition() {
+        attachSurface();
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        engine.prepared(600000, 640, 360);
+        stopTicker(mView);
+        engine.advanceTo(8000);
+        ShadowLooper.idleMainLooper(STALL_CHECK_INTERVAL);
+        engine.mOpenedUri = null;
+
+        engine.error(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_IO);
+        ShadowLooper.idleMainLooper(RecoveryPolicy.DEFAULT_BASE_DELAY);
+        assertEquals(URI, engine.mOpenedUri);
+
+        engine.prepared(600000, 640, 360);
+        assertEquals(8000, engine.getCurrentPosition());
+        assertTrue(engine.isPlaying());
+        assertEquals(0, mListener.mErrorCount);
+    }
+
+    @Test
+    public void disablesThePlayerOnAFatalError() {
+        attachSurface();
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        engine.prepared(600000, 640, 360);
+        stopTicker(mView);
+        engine.mOpenedUri = null;
+
+        engine.error(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_UNSUPPORTED);
+        assertEquals(1, mListener.mErrorCount);
+        assertEquals(MediaPlayer.MEDIA_ERROR_UNKNOWN, mListener.mWhat);
+        assertEquals(MediaPlayer.MEDIA_ERROR_UNSUPPORTED, mListener.mExtra);
+
+        ShadowLooper.idleMainLooper(STALL_TIMEOUT + RecoveryPolicy.DEFAULT_MAX_DELAY);
+        clickPlay(mView);
+        assertNull("reopened after a fatal error", engine.mOpenedUri);
+        assertFalse(engine.isPlaying());
+        assertEquals(1, mListener.mErrorCount);
+    }
+
+    @Test
+    public void retargetsTheEngineCallbacksOnTakeOver() {
+        attachSurface();
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        engine.prepared(600000, 640, 360);
+        final ErrorListener targetListener = new ErrorListener();
+        createTarget(targetListener);
+
+        assertTrue(mTarget.takeOver(mView));
+        assertTrue(engine.isPlaying());
+        assertNotNull(engine.mSurface);
+        assertEquals(mTargetFactory.mEngine.mSurface, engine.mSurface);
+
+        engine.error(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_UNSUPPORTED);
+        assertEquals(1, targetListener.mErrorCount);
+        assertEquals("error reached the source", 0, mListener.mErrorCount);
+    }
+
+    @Test
+    public void reopensTheVideoInTheSourceOnPlay() {
+        attachSurface();
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        engine.prepared(600000, 640, 360);
+        createTarget(new ErrorListener());
+        assertTrue(mTarget.takeOver(mView));
+
+        final FakePlaybackEngine sourceEngine = mFactory.mEngine;
+        assertTrue("source kept the engine", sourceEngine != engine);
+        assertNull(sourceEngine.mOpenedUri);
+
+        clickPlay(mView);
+        assertEquals(URI, sourceEngine.mOpenedUri);
+        assertTrue("source took the engine back", engine.isPlaying());
+    }
+
+    @Test
+    public void redrawsAPausedVideoInTheNewSurface() {
+        attachSurface();
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        engine.prepared(600000, 640, 360);
+        engine.advanceTo(7000);
+        clickPlay(mView);
+        assertFalse(engine.isPlaying());
+        engine.mSeekTarget = -1;
+        createTarget(new ErrorListener());
+
+        assertTrue(mTarget.takeOver(mView));
+        assertEquals(7000, engine.mSeekTarget);
+        assertFalse(engine.isPlaying());
+    }
+
+    @Test
+    public void refusesToHandOverWhileARecoveryIsPending() {
+        attachSurface();
+        final FakePlaybackEngine engine = mFactory.mEngine;
+        engine.prepared(600000, 640, 360);
+        stopTicker(mView);
+        engine.error(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_IO);
+        createTarget(new ErrorListener());
+
+        assertFalse(mTarget.takeOver(mView));
+        assertTrue("source lost the engine", mFactory.mEngine == engine);
+        engine.mOpenedUri = null;
+        ShadowLooper.idleMainLooper(RecoveryPolicy.DEFAULT_BASE_DELAY);
+        assertEquals("recovery dropped", URI, engine.mOpenedUri);
+    }
+
+    private void attachSurface() {
+        mView.surfaceCreated(((SurfaceView) mView.getChildAt(0)).getHolder());
+    }
+
+    private void createTarget(ErrorListener listener) {
+        mTarget = new VideoPlayer(RuntimeEnvironment.application);
+        mTarget.setControlsMode(VideoPlayer.CONTROLS_MODE_NONE);
+        mTarget.setEngineFactory(mTargetFactory);
+        mTarget.setOnPlaybackEventListener(listener);
+        // The SurfaceHolder of Robolectric has no Surface, a texture gives the target one.
+        mTarget.onSurfaceTextureAvailable(new SurfaceTexture(0), 640, 360);
+    }
+
+    private static void clickPlay(VideoPlayer view) {
+        final View playButton = new View(RuntimeEnvironment.application);
+        playButton.setId(R.id.iv_play);
+        view.onClick(playButton);
+    }
+
+    /**
+     * Robolectric runs frame callbacks without advancing the clock, so a ticking view would keep
+     * the looper busy forever. The stall check does not depend on the ticker.
+     */
+    private static void stopTicker(VideoPlayer view) {
+        ProgressTicker.getInstance().unregister(view);
+    }
+}
@@ -0,0 +1,57 @@
+package com.reactnativevideoplayer.view;
+
+import android.graphics.Matrix;
+import android.graphics.Rect;
+
+import com.reactnativevideoplayer.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * The aspect math runs on every layout of the render view.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class VideoScalingBenchmark {
+
+    private static final int ITERATIONS = 200000;
+
+    @Test
+    public void computeBounds() {
+        Benchmark.run("VideoScaling.computeBounds", ITERATIONS, new Runnable() {
+            private final Rect mBounds = new Rect();
+            private int mCount;
+
+            @Override
+            public void run() {
+                mCount++;
+                VideoScaling.computeBounds(VideoPlayer.RESIZE_MODE_CONTAIN + (mCount & 1),
+                        1080, 608 + (mCount & 255), 1280, 720, mBounds);
+            }
+        }).assertNoAllocations();
+    }
+
+    /**
+     * Matrix is shadowed by Robolectric, so only the time is of interest here.
+     */
+    @Test
+    public void computeTransform() {
+        Benchmark.run("VideoScaling.computeTransform", ITERATIONS, new Runnable() {
+            private final Rect mBounds = new Rect();
+            private final Matrix mTransform = new Matrix();
+            private int mCount;
+
+            @Override
+            public void run() {
+                mCount++;
+                final int parentH = 608 + (mCount & 255);
+                VideoScaling.computeBounds(VideoPlayer.RESIZE_MODE_COVER, 1080, parentH,
+                        1280, 720, mBounds);
+                VideoScaling.computeTransform(1080, parentH, mBounds, mTransform);
+            }
+        });
+    }
+}
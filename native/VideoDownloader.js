@@ -0,0 +1,38 @@
+import {
+    NativeModules,
+    DeviceEventEmitter
+} from 'react-native';
+
+const VideoDownloaderModule = NativeModules.VideoDownloader;
+
+/**
+ * Saves videos for offline playback, a VideoPlayer given the uri of a saved video plays the
+ * local copy. A download is a map of uri, state ('queued', 'running', 'paused', 'completed',
+ * 'failed' or 'removed'), downloadedBytes, totalBytes and error.
+ */
+export default class VideoDownloader {
+
+    static download(uri) {
+        return VideoDownloaderModule.download(uri);
+    }
+
+    static pause(uri) {
+        VideoDownloaderModule.pause(uri);
+    }
+
+    static remove(uri) {
+        return VideoDownloaderModule.remove(uri);
+    }
+
+    static getDownloads() {
+        return VideoDownloaderModule.getDownloads();
+    }
+
+    static addProgressListener(listener) {
+        return DeviceEventEmitter.addListener('VideoDownloadProgress', listener);
+    }
+
+    static addStateListener(listener) {
+        return DeviceEventEmitter.addListener('VideoDownloadState', listener);
+    }
+}
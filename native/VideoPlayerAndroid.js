@@ -1,5 +1,6 @@
 import React, { PropTypes, Component } from 'react';
 import {
+    NativeModules,
     UIManager,
     requireNativeComponent,
     View,
@@ -7,6 +8,8 @@ import {
 } from 'react-native';
 
 const VideoPlayerAndroid = requireNativeComponent('VideoPlayer', VideoPlayer);
+const VideoPlayerStats = NativeModules.VideoPlayerStats;
+const VideoPlayerHandoff = NativeModules.VideoPlayerHandoff;
 
 export default class VideoPlayer extends Component {
 
@@ -14,12 +17,45 @@ export default class VideoPlayer extends Component {
 
     constructor(props) {
         super(props);
+        this._onLoad = this._onLoad.bind(this);
+        this._onProgress = this._onProgress.bind(this);
+        this._onBuffer = this._onBuffer.bind(this);
+        this._onEnd = this._onEnd.bind(this);
+        this._onError = this._onError.bind(this);
+        this._onStats = this._onStats.bind(this);
     }
 
     static propTypes = {
         uri: PropTypes.string,
+        renditions: PropTypes.arrayOf(PropTypes.shape({
+            uri: PropTypes.string.isRequired,
+            bitrate: PropTypes.number.isRequired,
+            width: PropTypes.number,
+            height: PropTypes.number,
+        })),
         resizeMode: PropTypes.oneOf(['cover', 'contain', 'stretch']),
+        renderBackend: PropTypes.oneOf(['surface', 'texture']),
+        engine: PropTypes.string,
         autoPlay: PropTypes.bool,
+        visibilityAutoPlay: PropTypes.bool,
+        completionMode: PropTypes.oneOf(['reset', 'end', 'start']),
+        controls: PropTypes.oneOf(['none', 'lazy', 'eager']),
+        loop: PropTypes.bool,
+        preloadUris: PropTypes.arrayOf(PropTypes.string),
+        playlist: PropTypes.arrayOf(PropTypes.string),
+        progressUpdateInterval: PropTypes.number,
+        eventInterval: PropTypes.number,
+        seekPreview: PropTypes.bool,
+        rememberPosition: PropTypes.bool,
+        autoRecover: PropTypes.bool,
+        poster: PropTypes.string,
+        posterFirstFrame: PropTypes.bool,
+        onLoad: PropTypes.func,
+        onProgress: PropTypes.func,
+        onBuffer: PropTypes.func,
+        onEnd: PropTypes.func,
+        onError: PropTypes.func,
+        onStats: PropTypes.func,
         ...View.propTypes
     }
 
@@ -39,7 +75,73 @@ export default class VideoPlayer extends Component {
         );
     }
 
+    preload(uris) {
+        UIManager.dispatchViewManagerCommand(
+            findNodeHandle(this),
+            UIManager.VideoPlayer.Commands.preload,
+            uris
+        );
+    }
+
+    next() {
+        UIManager.dispatchViewManagerCommand(
+            findNodeHandle(this),
+            UIManager.VideoPlayer.Commands.next,
+            []
+        );
+    }
+
+    previous() {
+        UIManager.dispatchViewManagerCommand(
+            findNodeHandle(this),
+            UIManager.VideoPlayer.Commands.previous,
+            []
+        );
+    }
+
+    getStats() {
+        return VideoPlayerStats.getStats(findNodeHandle(this));
+    }
+
+    takeOver(player) {
+        return VideoPlayerHandoff.handOff(findNodeHandle(player), findNodeHandle(this));
+    }
+
+    _onLoad(event) {
+        this.props.onLoad && this.props.onLoad(event.nativeEvent);
+    }
+
+    _onProgress(event) {
+        this.props.onProgress && this.props.onProgress(event.nativeEvent);
+    }
+
+    _onBuffer(event) {
+        this.props.onBuffer && this.props.onBuffer(event.nativeEvent);
+    }
+
+    _onEnd(event) {
+        this.props.onEnd && this.props.onEnd(event.nativeEvent);
+    }
+
+    _onError(event) {
+        this.props.onError && this.props.onError(event.nativeEvent);
+    }
+
+    _onStats(event) {
+        this.props.onStats && this.props.onStats(event.nativeEvent);
+    }
+
     render() {
-        return <VideoPlayerAndroid {...this.props } />;
+        return (
+            <VideoPlayerAndroid
+                {...this.props}
+                onLoad={this._onLoad}
+                onProgress={this._onProgress}
+                onBuffer={this._onBuffer}
+                onEnd={this._onEnd}
+                onError={this._onError}
+                onStats={this._onStats}
+            />
+        );
     }
 }
\ No newline at end of file